@@ -0,0 +1,97 @@
+package com.outside.api.bench;
+
+import com.outside.api.service.CheckinService;
+import com.outside.api.service.CheckinWriteBehind;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sustained single check-ins per second, one transaction each vs write-behind
+ *
+ * 8 client threads (change with -t) check users in as fast as they can.
+ * ingest=sync goes through CheckinService.checkinUser, flush and enqueue through
+ * CheckinWriteBehind with that durability. The buffer is kept small so enqueue
+ * clients are soon held back by the writer and the score is what the writer
+ * sustains, not how fast a queue fills up (they wait for room instead of getting
+ * refused, this measures throughput, not back-pressure).
+ *
+ * H2 in memory commits almost for free, on a database where a commit waits for
+ * the log to hit the disk the gap between sync and write-behind is much bigger.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IngestBenchmark {
+
+    @Param({"sync", "flush", "enqueue"})
+    public String ingest;
+
+    @Param({"10000"})
+    public int venues;
+
+    @Param({"10000"})
+    public int users;
+
+    private ConfigurableApplicationContext context;
+    private CheckinService checkinService;
+    private CheckinWriteBehind writeBehind;
+    private List<Long> venueIds;
+    private List<Long> userIds;
+    private final AtomicLong checkins = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        context = ingest.equals("sync")
+                ? SyntheticData.startApp("ingest")
+                : SyntheticData.startApp("ingest",
+                        "--outside.checkin.ingest.mode=write-behind",
+                        "--outside.checkin.ingest.durability=" + ingest,
+                        "--outside.checkin.ingest.buffer-size=1024",
+                        "--outside.checkin.ingest.enqueue-timeout-ms=60000");
+        checkinService = context.getBean(CheckinService.class);
+        writeBehind = context.getBean(CheckinWriteBehind.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        venueIds = SyntheticData.insertVenues(jdbc, venues);
+        userIds = SyntheticData.insertUsers(jdbc, users);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close(); //write-behind drains its buffer here, outside the measurement
+    }
+
+    /**
+     * Same walk as ServiceBenchmark.checkinUser, shared by all threads: every call
+     * moves one user to their next venue, so no check-in is rejected
+     */
+    @Benchmark
+    public Object checkin() {
+        long n = checkins.getAndIncrement();
+        Long userId = userIds.get((int) (n % users));
+        Long venueId = venueIds.get((int) ((n / users) % venues));
+        return ingest.equals("sync")
+                ? checkinService.checkinUser(userId, venueId)
+                : writeBehind.submit(userId, venueId);
+    }
+}
@@ -0,0 +1,86 @@
+package com.outside.api.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outside.api.dto.CheckinDTO;
+import com.outside.api.dto.UserDTO;
+import com.outside.api.model.Checkin;
+import com.outside.api.model.User;
+import com.outside.api.model.Venue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity -> DTO mapping and JSON serialization of response lists, no Spring context
+ *
+ * The ObjectMapper is built the way Spring Boot builds its own (java.time
+ * support, ISO dates), so the numbers match what the controllers pay.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MappingBenchmark {
+
+    //list length, e.g. checkins at a busy venue or one page of venues
+    @Param({"100", "1000"})
+    public int size;
+
+    private List<Checkin> checkins;
+    private List<User> users;
+    private List<CheckinDTO> checkinDTOs;
+    private List<Venue> venues;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        venues = SyntheticData.venues(size, 42);
+        users = SyntheticData.users(size);
+        checkins = SyntheticData.checkins(users, venues, size, 42);
+        checkinDTOs = checkins.stream().map(CheckinDTO::from).toList();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public List<CheckinDTO> checkinToDTO() {
+        List<CheckinDTO> result = new ArrayList<>(checkins.size());
+        for (Checkin checkin : checkins) {
+            result.add(CheckinDTO.from(checkin));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<UserDTO> userToDTO() {
+        List<UserDTO> result = new ArrayList<>(users.size());
+        for (User user : users) {
+            result.add(UserDTO.from(user));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] serializeCheckinDTOs() throws Exception {
+        return objectMapper.writeValueAsBytes(checkinDTOs);
+    }
+
+    @Benchmark
+    public byte[] serializeVenues() throws Exception {
+        return objectMapper.writeValueAsBytes(venues);
+    }
+}
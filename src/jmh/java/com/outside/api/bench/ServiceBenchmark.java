@@ -0,0 +1,119 @@
+package com.outside.api.bench;
+
+import com.outside.api.dto.CheckinBatchItem;
+import com.outside.api.dto.CheckinBatchResult;
+import com.outside.api.model.Checkin;
+import com.outside.api.model.Venue;
+import com.outside.api.service.CheckinService;
+import com.outside.api.service.VenueService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service hot paths against a real (H2, in-memory) database
+ *
+ * Boots the app without a web server on a fresh H2 database migrated by Flyway,
+ * then loads `venues` venues and `users` users of synthetic data. Sizes can be
+ * changed from the command line, e.g. -p venues=100000. checkinBatch checks in
+ * `batch` users per call, so check-ins per second is its score times `batch`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ServiceBenchmark {
+
+    @Param({"10000"})
+    public int venues;
+
+    @Param({"10000"})
+    public int users;
+
+    @Param({"20"})
+    public int batch;
+
+    //search box queries: prefixes, whole words and typos
+    private static final String[] QUERIES = {"blue lan", "golden", "the rusty fox", "velvt room", "neon",
+            "hiden cellar", "lucky tap", "midnight", "crown", "wild owl"};
+
+    private ConfigurableApplicationContext context;
+    private VenueService venueService;
+    private CheckinService checkinService;
+    private List<Long> venueIds;
+    private List<Long> userIds;
+    private final Random random = new Random(7);
+    private long checkins;
+
+    @Setup
+    public void setUp() {
+        context = SyntheticData.startApp("bench");
+        venueService = context.getBean(VenueService.class);
+        checkinService = context.getBean(CheckinService.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        venueIds = SyntheticData.insertVenues(jdbc, venues);
+        userIds = SyntheticData.insertUsers(jdbc, users);
+        venueService.loadIndexes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Venue> venuesNearby() {
+        return venueService.getVenuesNearby(SyntheticData.latitude(random), SyntheticData.longitude(random), 1.0);
+    }
+
+    @Benchmark
+    public List<Venue> searchVenues() {
+        return venueService.searchVenues(QUERIES[random.nextInt(QUERIES.length)], 20);
+    }
+
+    /**
+     * Every call moves one user to their next venue, so each user walks through all
+     * venues before returning to one (no cooldown or "already checked in" rejections)
+     */
+    @Benchmark
+    public Checkin checkinUser() {
+        CheckinBatchItem next = nextCheckin();
+        return checkinService.checkinUser(next.userId(), next.venueId());
+    }
+
+    /**
+     * Same walk as checkinUser, `batch` users per call through the batch check-in
+     */
+    @Benchmark
+    public List<CheckinBatchResult> checkinBatch() {
+        List<CheckinBatchItem> items = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++) {
+            items.add(nextCheckin());
+        }
+        return checkinService.checkinUsers(items);
+    }
+
+    private CheckinBatchItem nextCheckin() {
+        long n = checkins++;
+        return new CheckinBatchItem(userIds.get((int) (n % userIds.size())),
+                venueIds.get((int) ((n / userIds.size()) % venueIds.size())));
+    }
+}
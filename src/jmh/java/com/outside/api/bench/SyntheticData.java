@@ -0,0 +1,146 @@
+package com.outside.api.bench;
+
+import com.outside.api.OutsideApiApplication;
+import com.outside.api.model.Checkin;
+import com.outside.api.model.User;
+import com.outside.api.model.Venue;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Reproducible fake venues, users and checkins for the benchmarks
+ * Same seed, same data, so runs can be compared with each other.
+ */
+final class SyntheticData {
+
+    private static final String[] ADJECTIVES = {"Blue", "Golden", "Rusty", "Velvet", "Neon", "Hidden", "Lucky",
+            "Crooked", "Silver", "Midnight", "Wild", "Old", "Red", "Green", "Broken"};
+    private static final String[] NOUNS = {"Lantern", "Anchor", "Fox", "Owl", "Room", "Tap", "Barrel", "Crown",
+            "Door", "Whistle", "Garden", "Lounge", "Tavern", "Cellar", "Harbor"};
+    private static final String[] CATEGORIES = {"bar", "club", "lounge", "brewery", "pub"};
+
+    //rough box around Chicago
+    private static final double MIN_LAT = 41.70;
+    private static final double MAX_LAT = 42.00;
+    private static final double MIN_LON = -87.90;
+    private static final double MAX_LON = -87.55;
+
+    private SyntheticData() {}
+
+    /**
+     * Boot the app without a web server on a fresh in-memory H2 database (migrated
+     * by Flyway), extra "--key=value" arguments go after the defaults
+     */
+    static ConfigurableApplicationContext startApp(String database, String... extraArgs) {
+        String[] args = Stream.concat(Stream.of(
+                        "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.hibernate.ddl-auto=validate",
+                        "--spring.flyway.locations=classpath:db/migration/{vendor}",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--outside.auth.bcrypt-strength=4",
+                        "--logging.level.root=WARN"), Stream.of(extraArgs))
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(OutsideApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+    }
+
+    //insert `count` venues straight into the database, returns their ids in order
+    static List<Long> insertVenues(JdbcTemplate jdbc, int count) {
+        Random data = new Random(42);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{venueName(data, i), latitude(data), longitude(data), category(data)});
+        }
+        jdbc.batchUpdate("INSERT INTO venues (name, latitude, longitude, category, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", rows);
+        return jdbc.queryForList("SELECT id FROM venues ORDER BY id", Long.class);
+    }
+
+    //insert `count` users straight into the database, returns their ids in order
+    static List<Long> insertUsers(JdbcTemplate jdbc, int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"bench" + i + "@example.com", "bench" + i});
+        }
+        jdbc.batchUpdate("INSERT INTO users (email, username, password_hash, created_at) " +
+                "VALUES (?, ?, 'not-a-real-hash', CURRENT_TIMESTAMP)", rows);
+        return jdbc.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+    }
+
+    static String venueName(Random random, int i) {
+        return "The " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)] + " " + i;
+    }
+
+    static double latitude(Random random) {
+        return MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT);
+    }
+
+    static double longitude(Random random) {
+        return MIN_LON + random.nextDouble() * (MAX_LON - MIN_LON);
+    }
+
+    static String category(Random random) {
+        return CATEGORIES[random.nextInt(CATEGORIES.length)];
+    }
+
+    static List<Venue> venues(int count, long seed) {
+        Random random = new Random(seed);
+        List<Venue> venues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Venue venue = new Venue();
+            venue.setId((long) i + 1);
+            venue.setName(venueName(random, i));
+            venue.setAddress(random.nextInt(9999) + " N Clark St");
+            venue.setLatitude(latitude(random));
+            venue.setLongitude(longitude(random));
+            venue.setCategory(category(random));
+            venue.setDescription("Synthetic venue number " + i + " with a description of typical length");
+            venue.setCreatedAt(LocalDateTime.now());
+            venue.setUpdatedAt(LocalDateTime.now());
+            venues.add(venue);
+        }
+        return venues;
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setId((long) i + 1);
+            user.setEmail("bench" + i + "@example.com");
+            user.setUsername("bench" + i);
+            user.setFirstName("Bench");
+            user.setLastName("User" + i);
+            user.setPasswordHash("not-a-real-hash");
+            user.setCreatedAt(LocalDateTime.now());
+            users.add(user);
+        }
+        return users;
+    }
+
+    static List<Checkin> checkins(List<User> users, List<Venue> venues, int count, long seed) {
+        Random random = new Random(seed);
+        List<Checkin> checkins = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            Checkin checkin = new Checkin();
+            checkin.setId((long) i + 1);
+            checkin.setUser(users.get(random.nextInt(users.size())));
+            checkin.setVenue(venues.get(random.nextInt(venues.size())));
+            checkin.setCheckinTime(now.minusMinutes(random.nextInt(600)));
+            checkin.setCreatedAt(checkin.getCheckinTime());
+            checkins.add(checkin);
+        }
+        return checkins;
+    }
+}
@@ -0,0 +1,63 @@
+package com.outside.api.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Micrometer setup, scraped from /actuator/prometheus
+ *
+ * Spring Boot already times every request (http.server.requests), the Hikari pool
+ * (hikaricp.connections.acquire is the wait for a connection) and Hibernate
+ * (hibernate.statements etc. when generate_statistics is on). On top of that the
+ * services are annotated with @Timed("outside.service"), which TimedAspect turns
+ * into one timer per class/method.
+ *
+ * Latency timers get Prometheus histogram buckets rather than client side
+ * percentiles. The buckets are a fixed array per timer, chosen once when the timer
+ * is created, so recording is a counter increment and percentiles are computed by
+ * Prometheus across instances. Client side percentiles would keep rotating decay
+ * sketches per timer instead.
+ */
+@Configuration
+public class MetricsConfig {
+
+    //timers that get histogram buckets, everything else stays count/sum/max
+    private static final List<String> HISTOGRAM_TIMERS = List.of(
+            "http.server.requests", "hikaricp.connections.acquire", "outside.");
+
+    //bucket range, anything outside lands in the first or the +Inf bucket
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(10);
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterFilter latencyHistograms() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getType() != Meter.Type.TIMER
+                        || HISTOGRAM_TIMERS.stream().noneMatch(id.getName()::startsWith)) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) MIN_EXPECTED.toNanos())
+                        .maximumExpectedValue((double) MAX_EXPECTED.toNanos())
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
@@ -1,14 +1,30 @@
 package com.outside.api.config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
+    //never calibrate below Spring's default cost, however fast the hardware is
+    private static final int MIN_BCRYPT_STRENGTH = 10;
+    private static final int MAX_BCRYPT_STRENGTH = 16;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -20,8 +36,61 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Versioned password encoder
+     *
+     * New hashes are written as {id}hash with the algorithm from
+     * outside.auth.password-algorithm (bcrypt, argon2 or pbkdf2). Stored hashes of any
+     * of those still match, and old hashes without a {id} prefix are treated as
+     * bcrypt. When a stored hash isn't on the current algorithm/cost,
+     * upgradeEncoding() says so and UserService rehashes it on the next login.
+     *
+     * The bcrypt cost comes from outside.auth.bcrypt-strength, or when that isn't
+     * set it is benchmarked at startup to take about outside.auth.target-hash-millis.
+     */
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${outside.auth.password-algorithm:bcrypt}") String algorithm,
+            @Value("${outside.auth.bcrypt-strength:0}") int bcryptStrength,
+            @Value("${outside.auth.target-hash-millis:250}") long targetHashMillis) {
+        int strength = bcryptStrength > 0 ? bcryptStrength : calibrateBcryptStrength(targetHashMillis);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalStateException("Unknown password algorithm: " + algorithm);
+        }
+        log.info("Password hashing with {} (bcrypt strength {})", algorithm, strength);
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        //hashes stored before this encoder existed have no {id} prefix and are plain bcrypt
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
+    /**
+     * Pick the bcrypt cost that takes closest to targetMillis on this machine
+     * Times a few hashes at the minimum cost, then adds one per doubling (each +1
+     * doubles the work).
+     */
+    private static int calibrateBcryptStrength(long targetMillis) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_BCRYPT_STRENGTH);
+        probe.encode("warm-up");
+
+        long[] samples = new long[3];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration-" + i);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double baseMillis = Math.max(1.0, samples[1] / 1_000_000.0);
+
+        int extra = (int) Math.round(Math.log(targetMillis / baseMillis) / Math.log(2));
+        return Math.max(MIN_BCRYPT_STRENGTH, Math.min(MAX_BCRYPT_STRENGTH, MIN_BCRYPT_STRENGTH + extra));
     }
 }
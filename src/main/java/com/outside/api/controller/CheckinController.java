@@ -1,15 +1,25 @@
 package com.outside.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outside.api.dto.CheckinBatchItem;
+import com.outside.api.dto.CheckinBatchResult;
 import com.outside.api.dto.CheckinDTO;
+import com.outside.api.dto.CheckinPage;
 import com.outside.api.model.Checkin;
+import com.outside.api.service.CheckinEventRelay;
 import com.outside.api.service.CheckinService;
+import com.outside.api.service.CheckinWriteBehind;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
 
 
 @RestController
@@ -20,6 +30,20 @@ public class CheckinController {
     @Autowired
     private CheckinService checkinService;
 
+    @Autowired
+    private CheckinWriteBehind writeBehind;
+
+    @Autowired
+    private CheckinEventRelay eventRelay;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     @PostMapping
     public ResponseEntity<?> checkinUser (@RequestBody CheckinRequest request) {
         if (request.getUserId() == null) {
@@ -31,20 +55,91 @@ public class CheckinController {
             return ResponseEntity.badRequest().body(Map.of("error", "Venue ID is required"));
         }
 
+        if (!eventRelay.isActive()) {
+            return standby();
+        }
         try {
+            if (writeBehind.isEnabled()) {
+                //202 when the check-in is only buffered (ack-on-enqueue), it has no id yet
+                CheckinDTO checkinDTO = writeBehind.submit(request.getUserId(), request.getVenueId());
+                return ResponseEntity.status(checkinDTO.id() == null ? HttpStatus.ACCEPTED : HttpStatus.CREATED)
+                    .body(checkinDTO);
+            }
             Checkin checkin = checkinService.checkinUser(request.getUserId(), request.getVenueId());
-            CheckinDTO checkinDTO = convertToDTO(checkin);
+            CheckinDTO checkinDTO = CheckinDTO.from(checkin);
             return ResponseEntity.status(HttpStatus.CREATED).body(checkinDTO);
+        } catch (RejectedExecutionException e) {
+            //write-behind buffer full or shutting down, clients should back off
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(Map.of("error", "Server is busy, please try again"));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+    //Group check-in: [{"userId": 1, "venueId": 2}, ...], up to MAX_BATCH_SIZE items
+    //answers 200 with one result per item (in request order) holding the checkin or the error
+    @PostMapping("/batch")
+    public ResponseEntity<?> checkinUsers(@RequestBody List<CheckinRequest> requests) {
+        if (requests.isEmpty() || requests.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Batch must have between 1 and " + MAX_BATCH_SIZE + " items"));
+        }
+
+        List<CheckinBatchItem> items = requests.stream()
+                .map(request -> new CheckinBatchItem(request.getUserId(), request.getVenueId()))
+                .toList();
+        if (!eventRelay.isActive()) {
+            return standby();
+        }
+        try {
+            return ResponseEntity.ok(batchResponse(checkinService.checkinUsers(items)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    //Group checkout: [checkinId, ...], same limits and response shape as the batch check-in
+    @PutMapping("/batch/checkout")
+    public ResponseEntity<?> checkoutUsers(@RequestBody List<Long> checkinIds) {
+        if (checkinIds.isEmpty() || checkinIds.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Batch must have between 1 and " + MAX_BATCH_SIZE + " items"));
+        }
+
+        if (!eventRelay.isActive()) {
+            return standby();
+        }
+        try {
+            return ResponseEntity.ok(batchResponse(checkinService.checkoutCheckins(checkinIds)));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(Map.of("error", e.getMessage()));
         }
     }
+
+    //another instance holds the relay lease (e.g. mid deploy), only it knows who is checked in where
+    private static ResponseEntity<?> standby() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header("Retry-After", "1")
+            .body(Map.of("error", "Server is starting up, please try again"));
+    }
+
+    private static Map<String, Object> batchResponse(List<CheckinBatchResult> results) {
+        long succeeded = results.stream().filter(CheckinBatchResult::succeeded).count();
+        return Map.of("succeeded", succeeded, "failed", results.size() - succeeded, "results", results);
+    }
+
     @PutMapping("/{id}/checkout")
     public ResponseEntity<?> checkoutUser (@PathVariable Long id) {
+        if (!eventRelay.isActive()) {
+            return standby();
+        }
         try {
             Checkin checkin = checkinService.checkoutUser(id);
-            CheckinDTO checkinDTO = convertToDTO(checkin);
+            CheckinDTO checkinDTO = CheckinDTO.from(checkin);
             return ResponseEntity.ok(checkinDTO);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -54,35 +149,42 @@ public class CheckinController {
 
     @GetMapping("/venue/{venueId}")
     public ResponseEntity<?> getActiveCheckinsByVenue(@PathVariable Long venueId) {
-        List<Checkin> checkins = checkinService.getActiveCheckinsForVenue(venueId);
-        List<CheckinDTO> checkinDTOs = checkins.stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+        List<CheckinDTO> checkinDTOs = checkinService.getActiveCheckinsForVenue(venueId);
         return ResponseEntity.ok(Map.of("count", checkinDTOs.size(), "checkins", checkinDTOs));
     }
 
+    //Paged history, pass the returned "next" back as ?cursor= to get the following page
     @GetMapping("/user/{userId}")
-    public ResponseEntity<?> getUserCheckinHistory(@PathVariable Long userId) {
-        List<Checkin> checkins = checkinService.getCheckinHistoryForUser(userId);
-        List<CheckinDTO> checkinDTOs = checkins.stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
-        return ResponseEntity.ok(checkinDTOs);
+    public ResponseEntity<?> getUserCheckinHistory(@PathVariable Long userId,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+
+        try {
+            CheckinPage page = checkinService.getCheckinHistoryForUser(userId, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
-    private CheckinDTO convertToDTO(Checkin checkin) {
-        return new CheckinDTO(
-            checkin.getId(),
-            checkin.getUser().getId(),
-            checkin.getUser().getUsername(),
-            checkin.getVenue().getId(),
-            checkin.getVenue().getName(),
-            checkin.getCheckinTime(),
-            checkin.getCheckoutTime(),
-            checkin.getCreatedAt()
-        );
+    //Full history as NDJSON (one checkin per line), written as rows come off the database
+    @GetMapping("/user/{userId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamUserCheckinHistory(@PathVariable Long userId) {
+        StreamingResponseBody body = out -> checkinService.streamCheckinHistoryForUser(userId, checkin -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(checkin));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
-    
+
 }
 
 
@@ -3,91 +3,138 @@ package com.outside.api.controller;
 import com.outside.api.dto.UserDTO;
 import com.outside.api.model.User;
 import com.outside.api.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/users")
 @CrossOrigin(origins = "*")
 public class UserController {
+    private static final Logger log = LoggerFactory.getLogger(UserController.class);
     
     @Autowired
     private UserService userService;
     
+    // Register and login return futures: the password hash runs on the PasswordHasher
+    // pool and the request thread is freed while it does
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@RequestBody RegisterRequest request) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody RegisterRequest request) {
         if (request.getEmail() == null || request.getEmail().trim().isEmpty()) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Email is required"));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "Email is required")));
         }
         
         if (request.getUsername() == null || request.getUsername().trim().isEmpty()) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Username is required"));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "Username is required")));
         }
         
         if (request.getPassword() == null || request.getPassword().isEmpty()) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Password is required"));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "Password is required")));
         }
         
         if (request.getPassword().length() < 8) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Password must be at least 8 characters"));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "Password must be at least 8 characters")));
         }
         
         try {
-            User registeredUser = userService.registerUser(
+            return userService.registerUser(
                 request.getEmail(),
                 request.getUsername(),
                 request.getPassword()
-            );
-            
-            UserDTO userDTO = convertToDTO(registeredUser);
-            return ResponseEntity.status(HttpStatus.CREATED).body(userDTO);
+            ).<ResponseEntity<?>>thenApply(registeredUser ->
+                ResponseEntity.status(HttpStatus.CREATED).body(UserDTO.from(registeredUser))
+            ).exceptionally(this::registrationFailed);
             
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
         } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.CONFLICT)
-                .body(Map.of("error", e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", e.getMessage())));
         }
     }
     
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@RequestBody LoginRequest request) {
+    public CompletableFuture<ResponseEntity<?>> loginUser(@RequestBody LoginRequest request) {
         if (request.getEmail() == null || request.getEmail().trim().isEmpty()) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Email is required"));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "Email is required")));
         }
         
         if (request.getPassword() == null || request.getPassword().isEmpty()) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Password is required"));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "Password is required")));
         }
         
-        Optional<User> authenticatedUser = userService.authenticateUser(
-            request.getEmail(),
-            request.getPassword()
-        );
-        
-        if (authenticatedUser.isPresent()) {
-            UserDTO userDTO = convertToDTO(authenticatedUser.get());
-            return ResponseEntity.ok(userDTO);
-        } else {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                .body(Map.of("error", "Invalid email or password"));
+        try {
+            return userService.authenticateUser(
+                request.getEmail(),
+                request.getPassword()
+            ).thenApply(authenticatedUser -> {
+                if (authenticatedUser.isPresent()) {
+                    UserDTO userDTO = UserDTO.from(authenticatedUser.get());
+                    return ResponseEntity.ok(userDTO);
+                } else {
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(Map.of("error", "Invalid email or password"));
+                }
+            }).exceptionally(e -> failed(unwrap(e)));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
         }
     }
     
+    // The async part of register failed: only a unique index hit (someone took the email or
+    // username between the check and the save) is the client's problem
+    private ResponseEntity<?> registrationFailed(Throwable e) {
+        Throwable cause = unwrap(e);
+        if (cause instanceof DataIntegrityViolationException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Email or username already in use"));
+        }
+        return failed(cause);
+    }
+    
+    // A rejected task means the hashing pool is full, anything else (database down, encoder error) is ours
+    private ResponseEntity<?> failed(Throwable cause) {
+        if (cause instanceof RejectedExecutionException) {
+            return busy();
+        }
+        log.error("Async user request failed", cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            .body(Map.of("error", "Internal server error"));
+    }
+    
+    // Failures reach exceptionally() wrapped when they happened in an earlier stage
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+    
+    // Hashing pool is saturated: fail fast so clients back off instead of queueing
+    private ResponseEntity<?> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header("Retry-After", "1")
+            .body(Map.of("error", "Server is busy, please try again"));
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<?> getUserById(@PathVariable Long id) {
         Optional<User> user = userService.getUserById(id);
         
         if (user.isPresent()) {
-            UserDTO userDTO = convertToDTO(user.get());
+            UserDTO userDTO = UserDTO.from(user.get());
             return ResponseEntity.ok(userDTO);
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -95,17 +142,6 @@ public class UserController {
         }
     }
     
-    private UserDTO convertToDTO(User user) {
-        return new UserDTO(
-            user.getId(),
-            user.getEmail(),
-            user.getUsername(),
-            user.getFirstName(),
-            user.getLastName(),
-            user.getCreatedAt()
-        );
-    }
-    
     public static class RegisterRequest {
         private String email;
         private String username;
@@ -1,14 +1,29 @@
 package com.outside.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outside.api.dto.VenuePage;
 import com.outside.api.model.Venue;
+import com.outside.api.service.VenueImportService;
 import com.outside.api.service.VenueService;
 
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController 
 @RequestMapping("/api/venues")
@@ -18,11 +33,67 @@ public class VenueController {
     @Autowired
     private VenueService venueService;
 
-    //All Venues - API request
+    @Autowired
+    private VenueImportService venueImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int DEFAULT_TRENDING_LIMIT = 20;
+    private static final int MAX_TRENDING_LIMIT = 100;
+    //the spatial index walks every grid cell a radius covers, keep that bounded
+    private static final double MAX_RADIUS_MI = 100;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    //All Venues, paged - API request
+    //?page=&limit= for offset paging, ?after=<next>&limit= for keyset paging,
+    //?fields=id,name,latitude,longitude to only get some columns
     @GetMapping
-    public ResponseEntity<List<Venue>> getAllVenues() {
-        return ResponseEntity.ok(venueService.getAllVenues());
-    } 
+    public ResponseEntity<?> getAllVenues(
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Limit must be between 1 and " + MAX_PAGE_SIZE));
+        }
+        if (page < 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Page must not be negative"));
+        }
+
+        try {
+            VenuePage venuePage = venueService.getVenuePage(fields, after, page, limit);
+            return ResponseEntity.ok(venuePage);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    //All Venues as NDJSON (one venue per line, same ?fields= as above) - API request
+    @GetMapping("/stream")
+    public ResponseEntity<?> streamAllVenues(@RequestParam(required = false) List<String> fields) {
+        List<String> selected;
+        try {
+            selected = venueService.resolveFields(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        StreamingResponseBody body = out -> venueService.streamVenues(selected, venue -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(venue));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
 
     //Venue by ID - API request
     @GetMapping("/{id}")
@@ -39,6 +110,25 @@ public class VenueController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdVenue);
     } 
 
+    //Bulk import venues - API request
+    //body is CSV with a header row (Content-Type: text/csv) or NDJSON (application/x-ndjson),
+    //streamed straight into the importer; answers with the import report
+    @PostMapping("/import")
+    public ResponseEntity<?> importVenues(HttpServletRequest request) throws IOException {
+        VenueImportService.Format format;
+        try {
+            format = VenueImportService.Format.fromContentType(request.getContentType());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(Map.of("error", e.getMessage()));
+        }
+
+        try (Reader body = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(venueImportService.importVenues(body, format, progress -> {}));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     //Update Venue - API request
     @PutMapping("/{id}")
     public ResponseEntity<Venue> updateVenue(@PathVariable Long id, @RequestBody Venue venueDetails) {
@@ -52,14 +142,50 @@ public class VenueController {
 
     //Nearby Venues - API request
     @GetMapping("/nearby")
-    public ResponseEntity<List<Venue>> getVenuesNearby(
+    public ResponseEntity<?> getVenuesNearby(
             @RequestParam Double lat,
             @RequestParam Double lon,
             @RequestParam Double radiusMi) {
+        if (!validRadius(radiusMi)) {
+            return invalidRadius();
+        }
         List<Venue> venues = venueService.getVenuesNearby(lat, lon, radiusMi);
         return ResponseEntity.ok(venues);
     } 
 
+    //Trending Venues nearby, busiest first - API request
+    //?window=15m|1h|tonight picks the count to rank by, &category= narrows it down
+    @GetMapping("/trending")
+    public ResponseEntity<?> getTrendingVenues(
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam Double radiusMi,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "15m") String window,
+            @RequestParam(defaultValue = "" + DEFAULT_TRENDING_LIMIT) int limit) {
+        if (!validRadius(radiusMi)) {
+            return invalidRadius();
+        }
+        if (limit < 1 || limit > MAX_TRENDING_LIMIT) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Limit must be between 1 and " + MAX_TRENDING_LIMIT));
+        }
+        try {
+            return ResponseEntity.ok(venueService.getTrendingVenues(lat, lon, radiusMi, category, window, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static boolean validRadius(double radiusMi) {
+        return radiusMi > 0 && radiusMi <= MAX_RADIUS_MI; //false for NaN too
+    }
+
+    private static ResponseEntity<?> invalidRadius() {
+        return ResponseEntity.badRequest()
+            .body(Map.of("error", "Radius must be greater than 0 and at most " + (int) MAX_RADIUS_MI + " miles"));
+    }
+
     //Venues by Category - API request
     @GetMapping("/category/{category}")
     public ResponseEntity<List<Venue>> getVenuesByCategory(@PathVariable String category) {
@@ -67,10 +193,62 @@ public class VenueController {
         return ResponseEntity.ok(venues);
     } 
 
+    //Live occupancy for one venue - API request
+    @GetMapping("/{id}/occupancy")
+    public ResponseEntity<Map<String, Long>> getOccupancy(@PathVariable Long id) {
+        return ResponseEntity.ok(Map.of("venueId", id, "count", venueService.getOccupancy(id)));
+    }
+
+    //Live occupancy for many venues (?ids=1,2,3) - API request
+    @GetMapping("/occupancy")
+    public ResponseEntity<Map<Long, Long>> getOccupancyBatch(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(venueService.getOccupancy(ids));
+    }
+
+    //Check-in stats for one venue from the hourly rollups - API request
+    //?from=&to= are ISO date-times (to exclusive, default the last day, 30 days for day), &granularity=hour|day
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<?> getVenueStats(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "hour") String granularity) {
+        try {
+            return ResponseEntity.ok(venueService.getVenueStats(id, from, to, granularity));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    //Live feed of who is at a venue (Server-Sent Events) - API request
+    //"snapshot" event with the active checkins, then "delta" events with joined/left
+    @GetMapping("/{id}/live")
+    public ResponseEntity<?> liveFeed(@PathVariable Long id) {
+        try {
+            SseEmitter emitter = venueService.openLiveFeed(id);
+            return ResponseEntity.ok(emitter);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    //Venue cache hit/miss/eviction stats - API request
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getCacheStats() {
+        return ResponseEntity.ok(venueService.getCacheStats());
+    }
+
     //Search Venues - API request
     @GetMapping("/search")
-    public ResponseEntity<List<Venue>> searchVenues(@RequestParam String query) {
-        List<Venue> venues = venueService.searchVenues(query);
+    public ResponseEntity<?> searchVenues(@RequestParam String query,
+                                          @RequestParam(defaultValue = "" + DEFAULT_SEARCH_LIMIT) int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Limit must be between 1 and " + MAX_SEARCH_LIMIT));
+        }
+        List<Venue> venues = venueService.searchVenues(query, limit);
         return ResponseEntity.ok(venues);
     } 
 
@@ -0,0 +1,9 @@
+package com.outside.api.dto;
+
+/**
+ * One user/venue pair of a batch check-in
+ */
+public record CheckinBatchItem(
+    Long userId,
+    Long venueId
+) {}
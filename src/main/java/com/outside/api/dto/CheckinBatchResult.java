@@ -0,0 +1,25 @@
+package com.outside.api.dto;
+
+/**
+ * Outcome of one item of a batch check-in or checkout
+ *
+ * index is the item's position in the request. Exactly one of checkin (on
+ * success) and error is set.
+ */
+public record CheckinBatchResult(
+    int index,
+    CheckinDTO checkin,
+    String error
+) {
+    public static CheckinBatchResult ok(int index, CheckinDTO checkin) {
+        return new CheckinBatchResult(index, checkin, null);
+    }
+
+    public static CheckinBatchResult failed(int index, String error) {
+        return new CheckinBatchResult(index, null, error);
+    }
+
+    public boolean succeeded() {
+        return error == null;
+    }
+}
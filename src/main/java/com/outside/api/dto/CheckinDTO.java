@@ -1,5 +1,7 @@
 package com.outside.api.dto;
 
+import com.outside.api.model.Checkin;
+
 import java.time.LocalDateTime;
 
 /**
@@ -15,4 +17,20 @@ public record CheckinDTO(
     LocalDateTime checkinTime,
     LocalDateTime checkoutTime,
     LocalDateTime createdAt
-) {}
\ No newline at end of file
+) {
+    /**
+     * Build from a Checkin entity (touches its user and venue)
+     */
+    public static CheckinDTO from(Checkin checkin) {
+        return new CheckinDTO(
+            checkin.getId(),
+            checkin.getUser().getId(),
+            checkin.getUser().getUsername(),
+            checkin.getVenue().getId(),
+            checkin.getVenue().getName(),
+            checkin.getCheckinTime(),
+            checkin.getCheckoutTime(),
+            checkin.getCreatedAt()
+        );
+    }
+}
\ No newline at end of file
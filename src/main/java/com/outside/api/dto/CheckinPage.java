@@ -0,0 +1,13 @@
+package com.outside.api.dto;
+
+import java.util.List;
+
+/**
+ * One page of a user's checkin history
+ *
+ * next is an opaque cursor for the following page, null on the last page
+ */
+public record CheckinPage(
+    List<CheckinDTO> checkins,
+    String next
+) {}
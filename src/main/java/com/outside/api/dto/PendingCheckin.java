@@ -0,0 +1,9 @@
+package com.outside.api.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A write-behind check-in that passed the rules and waits for the writer
+ * checkinTime is when it was accepted, that's the time it gets stored with
+ */
+public record PendingCheckin(Long userId, Long venueId, LocalDateTime checkinTime) {}
@@ -0,0 +1,14 @@
+package com.outside.api.dto;
+
+import com.outside.api.model.Venue;
+
+/**
+ * A venue on the trending list with its check-in counts per window
+ */
+public record TrendingVenue(
+    Venue venue,
+    Double distanceMi,
+    long last15Minutes,
+    long lastHour,
+    long tonight
+) {}
@@ -1,4 +1,5 @@
 package com.outside.api.dto;
+import com.outside.api.model.User;
 import java.time.LocalDateTime;
 
 /**
@@ -8,4 +9,16 @@ import java.time.LocalDateTime;
  *
  * Use Records b/c immutable (has no setters only getters // lombok creates setters so not immutable i.e. setEmail())
  */
-public record UserDTO(Long id, String email, String username, String firstName, String lastName, LocalDateTime createdAt) {}
+public record UserDTO(Long id, String email, String username, String firstName, String lastName, LocalDateTime createdAt) {
+
+    public static UserDTO from(User user) {
+        return new UserDTO(
+            user.getId(),
+            user.getEmail(),
+            user.getUsername(),
+            user.getFirstName(),
+            user.getLastName(),
+            user.getCreatedAt()
+        );
+    }
+}
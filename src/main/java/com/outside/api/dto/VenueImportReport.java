@@ -0,0 +1,25 @@
+package com.outside.api.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk venue import
+ *
+ * rows counts every data row read. Each one ends up imported, skipped as a
+ * duplicate (same name and coordinates as a venue already in the database or
+ * earlier in the file) or failed. errors lists the failed rows, capped so a
+ * broken file can't blow up the response; failed is the full count.
+ */
+public record VenueImportReport(
+    long rows,
+    long imported,
+    long duplicates,
+    long failed,
+    List<RowError> errors,
+    long millis
+) {
+    /**
+     * A rejected row, line is the 1-based line it starts on in the input
+     */
+    public record RowError(long line, String message) {}
+}
@@ -0,0 +1,17 @@
+package com.outside.api.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Changes to a venue since the last message on its live feed
+ * A checkin that came and went inside one flush window shows up in neither list.
+ */
+public record VenueLiveDelta(
+    Long venueId,
+    long count,
+    List<Arrival> joined,
+    List<Long> left
+) {
+    public record Arrival(Long checkinId, Long userId, LocalDateTime checkinTime) {}
+}
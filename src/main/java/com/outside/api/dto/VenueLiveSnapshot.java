@@ -0,0 +1,12 @@
+package com.outside.api.dto;
+
+import java.util.List;
+
+/**
+ * First message on a live venue feed: everyone checked in right now
+ */
+public record VenueLiveSnapshot(
+    Long venueId,
+    long count,
+    List<CheckinDTO> checkins
+) {}
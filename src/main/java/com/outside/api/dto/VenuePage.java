@@ -0,0 +1,15 @@
+package com.outside.api.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of the venue listing
+ *
+ * venues holds only the fields the client asked for. next is the id to pass
+ * back as ?after= for the following page, null on the last page.
+ */
+public record VenuePage(
+    List<Map<String, Object>> venues,
+    Long next
+) {}
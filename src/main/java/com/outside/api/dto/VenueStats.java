@@ -0,0 +1,29 @@
+package com.outside.api.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Check-in activity of a venue over [from, to), from the hourly rollups
+ *
+ * Only buckets with arrivals or departures are listed. Departures and dwell
+ * time count in the bucket of the checkout.
+ */
+public record VenueStats(
+    Long venueId,
+    String granularity,
+    LocalDateTime from,
+    LocalDateTime to,
+    List<Bucket> buckets
+) {
+    /**
+     * One hour or day, averageDwellMinutes is null when nobody left during it
+     */
+    public record Bucket(
+        LocalDateTime start,
+        long arrivals,
+        long departures,
+        long peakOccupancy,
+        Double averageDwellMinutes
+    ) {}
+}
@@ -0,0 +1,44 @@
+package com.outside.api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.Immutable;
+import java.time.LocalDateTime;
+
+/**
+ * ArchivedCheckin Entity (cold tier)
+ *
+ * A closed checkin moved out of checkins by CheckinArchiver, same id and
+ * columns. Rows are written with INSERT ... SELECT by the archiver and never
+ * change afterwards, hence @Immutable.
+ *
+ * Plain id columns instead of relationships: there are no foreign keys, a row
+ * can outlive its user or venue.
+ */
+@Entity
+@Table(name = "checkins_archive")
+@Immutable
+@Data
+public class ArchivedCheckin {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long venueId;
+
+    @Column(nullable = false)
+    private LocalDateTime checkinTime;
+
+    @Column(nullable = false)
+    private LocalDateTime checkoutTime;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column
+    private LocalDateTime updatedAt;
+}
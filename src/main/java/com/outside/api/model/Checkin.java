@@ -20,8 +20,10 @@ import java.time.LocalDateTime;
 @Data
 public class Checkin {
     
+    //sequence (not IDENTITY) so batch check-ins can batch their inserts, 50 ids per nextval
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "checkins_seq")
+    @SequenceGenerator(name = "checkins_seq", sequenceName = "checkins_seq", allocationSize = 50)
     private Long id;
     
     /**
@@ -29,8 +31,9 @@ public class Checkin {
      * 
      * @ManyToOne relationship: many check-ins can belong to one user
      * nullable=false: a check-in must always be associated with a user
+     * LAZY: don't pull the whole user row (password hash included) with every check-in
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
@@ -39,8 +42,9 @@ public class Checkin {
      * 
      * @ManyToOne relationship: many check-ins can belong to one venue
      * nullable=false: a check-in must always be associated with a venue
+     * LAZY: list endpoints read venue fields through projection queries instead
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "venue_id", nullable = false)
     private Venue venue;
     
@@ -0,0 +1,68 @@
+package com.outside.api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * CheckinEvent Entity (outbox row)
+ *
+ * Written by CheckinService in the same transaction as the checkin change it
+ * describes, so an event exists if and only if the change committed.
+ * CheckinEventRelay picks up unpublished rows, hands them to CheckinEventBus and
+ * then stamps publishedAt.
+ *
+ * No foreign keys on purpose: events outlive the checkins/users they mention.
+ */
+@Entity
+@Table(name = "checkin_events")
+@Data
+public class CheckinEvent {
+
+    public enum Type {
+        CHECKED_IN,
+        CHECKED_OUT,
+        AUTO_EXPIRED
+    }
+
+    //sequence so a batch check-in writes its events as one JDBC batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "checkin_events_seq")
+    @SequenceGenerator(name = "checkin_events_seq", sequenceName = "checkin_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Type type;
+
+    @Column(nullable = false)
+    private Long checkinId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long venueId;
+
+    /**
+     * When the change happened: checkin time for CHECKED_IN, checkout time otherwise
+     */
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+
+    /**
+     * Null until the relay handed the event to the bus
+     */
+    @Column
+    private LocalDateTime publishedAt;
+
+    public static CheckinEvent of(Type type, Long checkinId, Long userId, Long venueId, LocalDateTime occurredAt) {
+        CheckinEvent event = new CheckinEvent();
+        event.setType(type);
+        event.setCheckinId(checkinId);
+        event.setUserId(userId);
+        event.setVenueId(venueId);
+        event.setOccurredAt(occurredAt);
+        return event;
+    }
+}
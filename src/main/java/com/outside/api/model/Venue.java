@@ -6,8 +6,10 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "venues")
 public class Venue {
+    //sequence (not IDENTITY) so bulk imports can batch their inserts, 50 ids per nextval
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venues_seq")
+    @SequenceGenerator(name = "venues_seq", sequenceName = "venues_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,55 @@
+package com.outside.api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * VenueHourlyStats Entity (rollup row)
+ *
+ * Check-in activity at one venue during one hour, maintained by VenueStatsRollup.
+ * Departures and dwell time count in the hour of the checkout, peakOccupancy is
+ * the most users checked in at once at any point of the hour that saw activity.
+ * Hours without arrivals or departures have no row.
+ */
+@Entity
+@Table(name = "venue_hourly_stats")
+@IdClass(VenueHourlyStats.Key.class)
+@Data
+public class VenueHourlyStats {
+
+    @Id
+    private Long venueId;
+
+    /**
+     * Start of the hour, server local time
+     */
+    @Id
+    private LocalDateTime hourStart;
+
+    @Column(nullable = false)
+    private int arrivals;
+
+    @Column(nullable = false)
+    private int departures;
+
+    @Column(nullable = false)
+    private int peakOccupancy;
+
+    /**
+     * Total time the departures of this hour had been checked in, average is dwellSeconds / departures
+     */
+    @Column(nullable = false)
+    private long dwellSeconds;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long venueId;
+        private LocalDateTime hourStart;
+    }
+}
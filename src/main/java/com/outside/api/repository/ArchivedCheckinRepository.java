@@ -0,0 +1,62 @@
+package com.outside.api.repository;
+import com.outside.api.dto.CheckinDTO;
+import com.outside.api.model.ArchivedCheckin;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import jakarta.persistence.QueryHint;
+
+/**
+ * Repository for checkins_archive, the cold tier of checkins
+ *
+ * History queries mirror the CheckinRepository ones so the two tiers can be
+ * merged page by page. Users and venues are left joined, archived rows may
+ * outlive them.
+ */
+@Repository
+public interface ArchivedCheckinRepository extends JpaRepository<ArchivedCheckin, Long> {
+
+    //Copy checkins over as they are, the caller deletes them from checkins in the same transaction
+    @Modifying
+    @Query(value = "INSERT INTO checkins_archive (id, user_id, venue_id, checkin_time, checkout_time, created_at, updated_at) " +
+            "SELECT id, user_id, venue_id, checkin_time, checkout_time, created_at, updated_at FROM checkins " +
+            "WHERE id IN (:ids)", nativeQuery = true)
+    int copyFromCheckins(@Param("ids") Collection<Long> ids);
+
+    //First page of a user's archived history, newest first
+    @Query("SELECT new com.outside.api.dto.CheckinDTO(a.id, a.userId, u.username, a.venueId, v.name, a.checkinTime, a.checkoutTime, a.createdAt) " +
+            "FROM ArchivedCheckin a LEFT JOIN User u ON u.id = a.userId LEFT JOIN Venue v ON v.id = a.venueId " +
+            "WHERE a.userId = :userId ORDER BY a.checkinTime DESC, a.id DESC")
+    List<CheckinDTO> findCheckinDTOsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    //Next page of a user's archived history: everything strictly after the (checkinTime, id) cursor
+    @Query("SELECT new com.outside.api.dto.CheckinDTO(a.id, a.userId, u.username, a.venueId, v.name, a.checkinTime, a.checkoutTime, a.createdAt) " +
+            "FROM ArchivedCheckin a LEFT JOIN User u ON u.id = a.userId LEFT JOIN Venue v ON v.id = a.venueId " +
+            "WHERE a.userId = :userId " +
+            "AND (a.checkinTime < :beforeTime OR (a.checkinTime = :beforeTime AND a.id < :beforeId)) " +
+            "ORDER BY a.checkinTime DESC, a.id DESC")
+    List<CheckinDTO> findCheckinDTOsByUserIdBefore(@Param("userId") Long userId,
+                                                   @Param("beforeTime") LocalDateTime beforeTime,
+                                                   @Param("beforeId") Long beforeId,
+                                                   Pageable pageable);
+
+    //Whole archived history for a user as a cursor-backed stream, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.outside.api.dto.CheckinDTO(a.id, a.userId, u.username, a.venueId, v.name, a.checkinTime, a.checkoutTime, a.createdAt) " +
+            "FROM ArchivedCheckin a LEFT JOIN User u ON u.id = a.userId LEFT JOIN Venue v ON v.id = a.venueId " +
+            "WHERE a.userId = :userId ORDER BY a.checkinTime DESC, a.id DESC")
+    Stream<CheckinDTO> streamCheckinDTOsByUserId(@Param("userId") Long userId);
+
+    //Archived checkins started in [since, to), rows are [venueId, checkinTime, checkoutTime] (venue stats backfill)
+    @Query("SELECT a.venueId, a.checkinTime, a.checkoutTime FROM ArchivedCheckin a WHERE a.checkinTime >= :since AND a.checkinTime < :to")
+    List<Object[]> findCheckinSpans(@Param("since") LocalDateTime since, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,50 @@
+package com.outside.api.repository;
+import com.outside.api.model.CheckinEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for the checkin_events outbox table
+ */
+@Repository
+public interface CheckinEventRepository extends JpaRepository<CheckinEvent, Long> {
+
+    //Oldest events not handed to the bus yet
+    @Query("SELECT e FROM CheckinEvent e WHERE e.publishedAt IS NULL ORDER BY e.id")
+    List<CheckinEvent> findUnpublished(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE CheckinEvent e SET e.publishedAt = :now WHERE e.id IN :ids")
+    int markPublished(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    //Mark everything still pending as published without delivering it (startup, state is rebuilt from checkins)
+    @Modifying
+    @Query("UPDATE CheckinEvent e SET e.publishedAt = :now WHERE e.publishedAt IS NULL")
+    int markAllPublished(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM CheckinEvent e WHERE e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+
+    //Relay lease (the one row of checkin_event_relay_lease): take it if it's ours already or expired
+    @Modifying
+    @Query(value = "UPDATE checkin_event_relay_lease SET owner = :owner, expires_at = :expiresAt " +
+            "WHERE id = 1 AND (owner = :owner OR expires_at < :now)", nativeQuery = true)
+    int acquireLease(@Param("owner") String owner, @Param("now") LocalDateTime now,
+                     @Param("expiresAt") LocalDateTime expiresAt);
+
+    //Move our lease's expiry (forward to renew, to now to release), 0 if someone else holds it
+    @Modifying
+    @Query(value = "UPDATE checkin_event_relay_lease SET expires_at = :expiresAt WHERE id = 1 AND owner = :owner",
+            nativeQuery = true)
+    int renewLease(@Param("owner") String owner, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Query(value = "SELECT owner FROM checkin_event_relay_lease WHERE id = 1", nativeQuery = true)
+    String findLeaseOwner();
+}
@@ -1,12 +1,22 @@
 package com.outside.api.repository;
+import com.outside.api.dto.CheckinDTO;
 import com.outside.api.model.Checkin;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import java.time.LocalDateTime;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 
 /**
  * Repository interface for Checkin entity
@@ -17,19 +27,109 @@ import java.time.LocalDateTime;
 
 @Repository
 public interface CheckinRepository extends JpaRepository<Checkin, Long> {
-    // Find all checkins by a specific user
-    List<Checkin> findByUserIdAndCheckoutTimeIsNull(Long userId);
+    //These users with their open checkins and the ones they closed after :since (cooldown window),
+    //rows are [userId, id, venueId, checkoutTime], checkin columns null for a user with none of those
+    //and no row at all for an id that isn't a user (loads CheckinSessionRegistry sessions)
+    @Query("SELECT u.id, c.id, c.venue.id, c.checkoutTime FROM User u LEFT JOIN Checkin c " +
+            "ON c.user = u AND (c.checkoutTime IS NULL OR c.checkoutTime > :since) WHERE u.id IN :userIds")
+    List<Object[]> findSessionRowsByUserIds(@Param("userIds") Collection<Long> userIds,
+                                            @Param("since") LocalDateTime since);
 
-    //Find most recent checkin for a user at a specific venue
-    Optional<Checkin> findFirstByUserIdAndVenueIdOrderByCheckinTimeDesc(Long userId, Long venueId);
+    //Every open checkin, same row shape (session table warm-up at startup)
+    @Query("SELECT c.user.id, c.id, c.venue.id, c.checkoutTime FROM Checkin c WHERE c.checkoutTime IS NULL")
+    List<Object[]> findActiveSessionRows();
 
-    //Fine all active checkins at a specific venue
-    List<Checkin> findByVenueIdAndCheckoutTimeIsNull(Long venueId);
+    //Every checkin closed after :since, same row shape (session table warm-up at startup)
+    @Query("SELECT c.user.id, c.id, c.venue.id, c.checkoutTime FROM Checkin c WHERE c.checkoutTime > :since")
+    List<Object[]> findSessionRowsCheckedOutSince(@Param("since") LocalDateTime since);
 
-    //Find all checkins for specific user (user's checkin history)
-    List<Checkin> findByUserIdOrderByCheckinTimeDesc(Long userId);
+    //Which of these checkin ids exist at all
+    @Query("SELECT c.id FROM Checkin c WHERE c.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 
-    //Find all checkins that need to be checked out (i.e. checked in more than 2 hours ago)
-    @Query("SELECT c FROM Checkin c WHERE c.checkoutTime IS NULL AND c.checkinTime < :twoHoursAgo")
-    List<Checkin> findExpiredCheckins(@Param("twoHoursAgo") LocalDateTime twoHoursAgo);
+    //One checkin, row-locked (used by manual checkout)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Checkin c WHERE c.id = :id")
+    Optional<Checkin> findByIdForUpdate(@Param("id") Long id);
+
+    //Find all active checkins at a specific venue, built straight into DTOs (one joined select, no entity loads)
+    @Query("SELECT new com.outside.api.dto.CheckinDTO(c.id, u.id, u.username, v.id, v.name, c.checkinTime, c.checkoutTime, c.createdAt) " +
+            "FROM Checkin c JOIN c.user u JOIN c.venue v WHERE v.id = :venueId AND c.checkoutTime IS NULL")
+    List<CheckinDTO> findActiveCheckinDTOsByVenueId(@Param("venueId") Long venueId);
+
+    //Given checkins as DTOs in one joined select (batch checkout results)
+    @Query("SELECT new com.outside.api.dto.CheckinDTO(c.id, u.id, u.username, v.id, v.name, c.checkinTime, c.checkoutTime, c.createdAt) " +
+            "FROM Checkin c JOIN c.user u JOIN c.venue v WHERE c.id IN :ids")
+    List<CheckinDTO> findCheckinDTOsByIds(@Param("ids") Collection<Long> ids);
+
+    //First page of a user's checkin history, newest first (checkinTime, id) for a stable keyset order
+    @Query("SELECT new com.outside.api.dto.CheckinDTO(c.id, u.id, u.username, v.id, v.name, c.checkinTime, c.checkoutTime, c.createdAt) " +
+            "FROM Checkin c JOIN c.user u JOIN c.venue v WHERE u.id = :userId ORDER BY c.checkinTime DESC, c.id DESC")
+    List<CheckinDTO> findCheckinDTOsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    //Next page of a user's checkin history: everything strictly after the (checkinTime, id) cursor
+    @Query("SELECT new com.outside.api.dto.CheckinDTO(c.id, u.id, u.username, v.id, v.name, c.checkinTime, c.checkoutTime, c.createdAt) " +
+            "FROM Checkin c JOIN c.user u JOIN c.venue v WHERE u.id = :userId " +
+            "AND (c.checkinTime < :beforeTime OR (c.checkinTime = :beforeTime AND c.id < :beforeId)) " +
+            "ORDER BY c.checkinTime DESC, c.id DESC")
+    List<CheckinDTO> findCheckinDTOsByUserIdBefore(@Param("userId") Long userId,
+                                                   @Param("beforeTime") LocalDateTime beforeTime,
+                                                   @Param("beforeId") Long beforeId,
+                                                   Pageable pageable);
+
+    //Whole checkin history for a user as a cursor-backed stream, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.outside.api.dto.CheckinDTO(c.id, u.id, u.username, v.id, v.name, c.checkinTime, c.checkoutTime, c.createdAt) " +
+            "FROM Checkin c JOIN c.user u JOIN c.venue v WHERE u.id = :userId ORDER BY c.checkinTime DESC, c.id DESC")
+    Stream<CheckinDTO> streamCheckinDTOsByUserId(@Param("userId") Long userId);
+
+    //Lock the next chunk of expired checkins (checked in more than 2 hours ago), rows are [id, venueId, userId]
+    //FOR UPDATE keeps a manual checkout from sneaking in between this select and the bulk update
+    @Query(value = "SELECT id, venue_id, user_id FROM checkins WHERE checkout_time IS NULL AND checkin_time < :twoHoursAgo " +
+            "ORDER BY id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockExpiredCheckins(@Param("twoHoursAgo") LocalDateTime twoHoursAgo, @Param("limit") int limit);
+
+    //Lock the open checkins of these users, rows are [id, venueId, userId] (write-behind writer)
+    @Query(value = "SELECT id, venue_id, user_id FROM checkins WHERE user_id IN (:userIds) AND checkout_time IS NULL " +
+            "FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockActiveCheckinsOfUsers(@Param("userIds") Collection<Long> userIds);
+
+    //Lock the given checkins if they are still active, rows are [id, venueId, userId]
+    @Query(value = "SELECT id, venue_id, user_id FROM checkins WHERE id IN (:ids) AND checkout_time IS NULL FOR UPDATE",
+            nativeQuery = true)
+    List<Object[]> lockActiveCheckins(@Param("ids") List<Long> ids);
+
+    //Every active checkin with its checkin time, rows are [id, checkinTime] (used to reload expiry deadlines)
+    @Query("SELECT c.id, c.checkinTime FROM Checkin c WHERE c.checkoutTime IS NULL")
+    List<Object[]> findActiveCheckinTimes();
+
+    //Set-based checkout of the given checkins, returns number of rows updated
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Checkin c SET c.checkoutTime = :now, c.updatedAt = :now WHERE c.id IN :ids AND c.checkoutTime IS NULL")
+    int checkoutAll(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    //Checkin times since a given moment, rows are [venueId, checkinTime] (used to rebuild trending counters)
+    @Query("SELECT c.venue.id, c.checkinTime FROM Checkin c WHERE c.checkinTime >= :since")
+    List<Object[]> findCheckinTimesSince(@Param("since") LocalDateTime since);
+
+    //Checkins started in [since, to), rows are [venueId, checkinTime, checkoutTime] (used to backfill venue stats)
+    @Query("SELECT c.venue.id, c.checkinTime, c.checkoutTime FROM Checkin c WHERE c.checkinTime >= :since AND c.checkinTime < :to")
+    List<Object[]> findCheckinSpans(@Param("since") LocalDateTime since, @Param("to") LocalDateTime to);
+
+    //Lock the next chunk of checkins closed before a given moment, oldest checkout first (used by the archiver)
+    @Query(value = "SELECT id FROM checkins WHERE checkout_time < :before ORDER BY checkout_time, id LIMIT :limit FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockCheckinsClosedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Checkin c WHERE c.id IN :ids")
+    int deleteAllByIds(@Param("ids") Collection<Long> ids);
+
+    //Checkin times of the given checkins, rows are [id, checkinTime] (dwell time of venue stats departures)
+    @Query("SELECT c.id, c.checkinTime FROM Checkin c WHERE c.id IN :ids")
+    List<Object[]> findCheckinTimesByIds(@Param("ids") Collection<Long> ids);
+
+    //Count active checkins per venue, rows are [venueId, count] (used to rebuild occupancy counters)
+    @Query("SELECT c.venue.id, COUNT(c) FROM Checkin c WHERE c.checkoutTime IS NULL GROUP BY c.venue.id")
+    List<Object[]> countActiveCheckinsByVenue();
 }
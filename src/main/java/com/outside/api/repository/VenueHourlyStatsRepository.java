@@ -0,0 +1,43 @@
+package com.outside.api.repository;
+import com.outside.api.model.VenueHourlyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for the venue_hourly_stats rollup table
+ */
+@Repository
+public interface VenueHourlyStatsRepository extends JpaRepository<VenueHourlyStats, VenueHourlyStats.Key> {
+
+    //Hours of one venue in [from, to), oldest first
+    @Query("SELECT s FROM VenueHourlyStats s WHERE s.venueId = :venueId AND s.hourStart >= :from AND s.hourStart < :to " +
+            "ORDER BY s.hourStart")
+    List<VenueHourlyStats> findHours(@Param("venueId") Long venueId,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to);
+
+    //Add a delta onto an existing hour, 0 if the hour has no row yet
+    @Modifying
+    @Query(value = "UPDATE venue_hourly_stats SET arrivals = arrivals + :arrivals, departures = departures + :departures, " +
+            "peak_occupancy = GREATEST(peak_occupancy, :peak), dwell_seconds = dwell_seconds + :dwellSeconds " +
+            "WHERE venue_id = :venueId AND hour_start = :hourStart", nativeQuery = true)
+    int addToHour(@Param("venueId") Long venueId,
+                  @Param("hourStart") LocalDateTime hourStart,
+                  @Param("arrivals") int arrivals,
+                  @Param("departures") int departures,
+                  @Param("peak") int peak,
+                  @Param("dwellSeconds") long dwellSeconds);
+
+    //Every venue's hours in [from, to), before a backfill writes them again
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM VenueHourlyStats s WHERE s.hourStart >= :from AND s.hourStart < :to")
+    int deleteHours(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT MAX(s.hourStart) FROM VenueHourlyStats s")
+    LocalDateTime findLatestHour();
+}
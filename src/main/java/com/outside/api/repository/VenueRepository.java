@@ -10,12 +10,13 @@ import java.util.List;
 
 
 @Repository
-public interface VenueRepository extends JpaRepository<Venue, Long> {
+public interface VenueRepository extends JpaRepository<Venue, Long>, VenueRepositoryCustom {
     List<Venue> findByCategory(String category);
 
     @Query("SELECT v FROM Venue v WHERE v.latitude BETWEEN :minLat AND :maxLat AND v.longitude BETWEEN :minLon AND :maxLon")
         List<Venue> findVenuesInBounds(double minLat, double maxLat, double minLon, double maxLon);
 
-    @Query("SELECT v FROM Venue v WHERE LOWER(v.name) LIKE LOWER(CONCAT('%', :namePart, '%'))")
-    List<Venue> searchByName(String namePart);
+    //[name, latitude, longitude] of every venue, for the bulk import's duplicate check
+    @Query("SELECT v.name, v.latitude, v.longitude FROM Venue v")
+    List<Object[]> findAllNamesAndCoordinates();
 }
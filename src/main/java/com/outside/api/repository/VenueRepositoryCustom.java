@@ -0,0 +1,39 @@
+package com.outside.api.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Custom queries for VenueRepository that select only some venue columns
+ *
+ * Used by the venue listing so map clients can ask for e.g.
+ * id,name,latitude,longitude and skip the TEXT description entirely.
+ * Each row is a map of field name -> value in the order the fields were asked for.
+ */
+public interface VenueRepositoryCustom {
+
+    //every selectable venue field, in the order used when a client doesn't pick any
+    List<String> ALL_FIELDS = List.of(
+            "id", "name", "address", "latitude", "longitude", "category", "phoneNumber",
+            "website", "ageRestriction", "coverCharge", "description", "photoUrl",
+            "createdAt", "updatedAt");
+
+    /**
+     * Page of venues ordered by id
+     *
+     * @param fields  venue fields to select (must be names of Venue properties)
+     * @param afterId only venues with id greater than this (keyset), or null
+     * @param offset  rows to skip (page * limit), 0 when using afterId
+     * @param limit   max rows to return
+     * @throws IllegalArgumentException if a field is not a Venue property
+     */
+    List<Map<String, Object>> findVenueFields(List<String> fields, Long afterId, int offset, int limit);
+
+    /**
+     * Every venue ordered by id as a cursor-backed stream, must be consumed inside a transaction
+     *
+     * @throws IllegalArgumentException if a field is not a Venue property
+     */
+    Stream<Map<String, Object>> streamVenueFields(List<String> fields);
+}
@@ -0,0 +1,84 @@
+package com.outside.api.repository;
+
+import com.outside.api.model.Venue;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Criteria-based implementation of VenueRepositoryCustom (picked up by Spring Data
+ * because of the Impl suffix)
+ */
+public class VenueRepositoryImpl implements VenueRepositoryCustom {
+
+    //whitelist so a query param can never be turned into an arbitrary path
+    private static final Set<String> FIELDS = Set.copyOf(ALL_FIELDS);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findVenueFields(List<String> fields, Long afterId, int offset, int limit) {
+        List<Tuple> tuples = buildQuery(fields, afterId)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            rows.add(toMap(tuple));
+        }
+        return rows;
+    }
+
+    @Override
+    public Stream<Map<String, Object>> streamVenueFields(List<String> fields) {
+        return buildQuery(fields, null)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 500)
+                .getResultStream()
+                .map(VenueRepositoryImpl::toMap);
+    }
+
+    private TypedQuery<Tuple> buildQuery(List<String> fields, Long afterId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Venue> venue = query.from(Venue.class);
+
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown venue field: " + field);
+            }
+            selections.add(venue.get(field).alias(field));
+        }
+        query.multiselect(selections);
+
+        if (afterId != null) {
+            query.where(cb.greaterThan(venue.get("id"), afterId));
+        }
+        query.orderBy(cb.asc(venue.get("id")));
+        return entityManager.createQuery(query);
+    }
+
+    private static Map<String, Object> toMap(Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            row.put(element.getAlias(), tuple.get(element));
+        }
+        return row;
+    }
+}
@@ -0,0 +1,114 @@
+package com.outside.api.service;
+
+import com.outside.api.repository.ArchivedCheckinRepository;
+import com.outside.api.repository.CheckinRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves checkins closed more than afterDays ago from checkins to checkins_archive
+ *
+ * Runs every archive interval (outside.checkin.archive.interval-ms, default an
+ * hour) in chunks of chunkSize: each chunk locks the oldest closed rows, copies
+ * them to the archive and deletes them in one short transaction, so a big
+ * backlog never holds locks or memory for long. That keeps the hot table, and
+ * every index on it, at roughly afterDays of data.
+ *
+ * Only long-closed checkins move, so nothing that checks in, checks out, the
+ * session table or the live counters look at ever lives in the archive. History
+ * reads merge both tiers (see CheckinService.getCheckinHistoryForUser).
+ */
+@Component
+public class CheckinArchiver {
+    private static final Logger log = LoggerFactory.getLogger(CheckinArchiver.class);
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private ArchivedCheckinRepository archivedCheckinRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final int afterDays;
+    private final int chunkSize;
+
+    public CheckinArchiver(@Value("${outside.checkin.archive.after-days:90}") int afterDays,
+                           @Value("${outside.checkin.archive.chunk-size:1000}") int chunkSize) {
+        if (afterDays < 1) {
+            throw new IllegalArgumentException("outside.checkin.archive.after-days must be at least 1, got " + afterDays);
+        }
+        this.afterDays = afterDays;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Checkins that started at or after this moment are never in the archive
+     * (an archived checkin was closed, so also started, more than afterDays ago)
+     */
+    public LocalDateTime horizon() {
+        return LocalDateTime.now().minusDays(afterDays);
+    }
+
+    /**
+     * Archive everything closed before the horizon
+     *
+     * @return number of checkins moved
+     */
+    @Scheduled(initialDelayString = "${outside.checkin.archive.interval-ms:3600000}",
+            fixedDelayString = "${outside.checkin.archive.interval-ms:3600000}")
+    public int archive() {
+        return archiveClosedBefore(horizon());
+    }
+
+    /**
+     * Archive checkins closed before a given moment, a chunk per transaction
+     *
+     * @return number of checkins moved
+     */
+    public int archiveClosedBefore(LocalDateTime before) {
+        int total = 0;
+        int chunks = 0;
+        while (true) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Integer moved = transactionTemplate.execute(status -> archiveChunk(before));
+            if (moved == null || moved == 0) {
+                break;
+            }
+            sample.stop(meterRegistry.timer("outside.checkin.archive.batch"));
+            total += moved;
+            chunks++;
+            if (moved < chunkSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            log.info("Archived {} checkins closed before {} in {} chunk(s)", total, before, chunks);
+        }
+        return total;
+    }
+
+    private int archiveChunk(LocalDateTime before) {
+        List<Long> ids = checkinRepository.lockCheckinsClosedBefore(before, chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archivedCheckinRepository.copyFromCheckins(ids);
+        return checkinRepository.deleteAllByIds(ids);
+    }
+}
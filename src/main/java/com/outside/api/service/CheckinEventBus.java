@@ -0,0 +1,97 @@
+package com.outside.api.service;
+
+import com.outside.api.model.CheckinEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process pub/sub for checkin lifecycle events
+ *
+ * Events sit in a bounded queue and one dispatcher thread hands them to every
+ * subscriber in order, so subscribers never see events concurrently or out of
+ * order. When the queue is full offer() stops accepting and CheckinEventRelay
+ * leaves the rest in the outbox for its next run, that's the back-pressure.
+ *
+ * Subscribers run on the dispatcher thread and should be quick (counters,
+ * maps), anything slow should hand off to its own thread.
+ */
+@Component
+public class CheckinEventBus {
+    private static final Logger log = LoggerFactory.getLogger(CheckinEventBus.class);
+
+    private final BlockingQueue<CheckinEvent> queue;
+    private final List<Consumer<CheckinEvent>> subscribers = new CopyOnWriteArrayList<>();
+    private final Thread dispatcher;
+
+    private volatile boolean running = true;
+
+    public CheckinEventBus(@Value("${outside.events.queue-capacity:10000}") int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dispatcher = new Thread(this::dispatchLoop, "checkin-event-bus");
+        this.dispatcher.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        dispatcher.interrupt();
+    }
+
+    public void subscribe(Consumer<CheckinEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Queue events for delivery, in order, until the queue is full
+     *
+     * @return how many events from the front of the list were accepted
+     */
+    public int offer(List<CheckinEvent> events) {
+        int accepted = 0;
+        for (CheckinEvent event : events) {
+            if (!queue.offer(event)) {
+                break;
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            CheckinEvent event;
+            try {
+                event = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (Consumer<CheckinEvent> subscriber : subscribers) {
+                try {
+                    subscriber.accept(event);
+                } catch (RuntimeException e) {
+                    //one broken subscriber shouldn't starve the others
+                    log.warn("Checkin event subscriber failed on event {}", event.getId(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.outside.api.service;
+
+import com.outside.api.model.CheckinEvent;
+import com.outside.api.repository.CheckinEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Moves events from the checkin_events outbox onto CheckinEventBus
+ *
+ * Every run reads unpublished events in id order, batchSize at a time, offers
+ * them to the bus and marks only the accepted ones as published. If the bus is
+ * full the run stops and the rest waits in the table, so a slow subscriber backs
+ * up into the outbox instead of into memory.
+ *
+ * Delivery is at-least-once: a crash between offer and markPublished
+ * re-delivers that batch, but at startup the backlog is skipped anyway since
+ * the in-memory subscribers rebuild their state from checkins.
+ *
+ * One active instance at a time. published_at is one column for every reader of
+ * the outbox, so a second instance's relay would take events this one's subscribers
+ * (occupancy, expiry wheel, live feed, trending, stats) never see, and its
+ * startup would skip events this one hasn't delivered yet. The active instance
+ * holds a lease (the one row of checkin_event_relay_lease), renewed every
+ * leaseRenewMs. Any other instance starts as a standby: it keeps trying to take
+ * the lease on the same schedule and takes over once the holder releases it at
+ * shutdown or lets it expire, so rolling and blue-green deploys just hand the
+ * lease on. Taking over runs the startup snapshot (see rebuildOnStartup), so
+ * the new holder starts from the checkins table, not from whatever it had.
+ * An instance that fails to renew (paused past the TTL while another took over)
+ * goes back to standby. isActive() tells callers which one this is: a standby
+ * refuses check-ins and checkouts and runs no auto-checkouts, since its
+ * in-memory state doesn't follow the outbox. Instances are told apart by
+ * outside.instance-id (host:pid by default), lease times come from each
+ * instance's clock.
+ */
+@Component
+public class CheckinEventRelay {
+    private static final Logger log = LoggerFactory.getLogger(CheckinEventRelay.class);
+
+    @Autowired
+    private CheckinEventRepository eventRepository;
+
+    @Autowired
+    private CheckinEventBus eventBus;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${outside.events.relay-batch-size:500}")
+    private int batchSize;
+
+    @Value("${outside.events.retention-hours:24}")
+    private int retentionHours;
+
+    @Value("${outside.events.lease-ttl-seconds:30}")
+    private int leaseTtlSeconds;
+
+    @Value("${outside.instance-id:}")
+    private String instanceId;
+
+    //subscriber state rebuilt from checkins at startup, see rebuildOnStartup
+    private final List<Runnable> startupRebuilds = new CopyOnWriteArrayList<>();
+
+    //set once the app is up, the lease isn't taken before the subscribers are all registered
+    private volatile boolean started = false;
+
+    //holding the lease with the subscribers rebuilt, scheduled runs do nothing otherwise
+    private volatile boolean active = false;
+
+    //when the lease we last took or renewed runs out (our clock), after a long pause we may not hold it anymore
+    private volatile long leaseValidUntil = 0;
+
+    @PostConstruct
+    public void init() {
+        if (instanceId.isBlank()) {
+            instanceId = defaultInstanceId();
+        }
+    }
+
+    /**
+     * Whether this instance holds the lease and relays events, false on a standby
+     */
+    public boolean isActive() {
+        return active && System.currentTimeMillis() < leaseValidUntil;
+    }
+
+    /**
+     * Renew the lease while active, try to take it over on a standby
+     * (every leaseRenewMs, and once at startup)
+     */
+    @Scheduled(fixedDelayString = "${outside.events.lease-renew-ms:10000}")
+    public synchronized void holdLease() {
+        if (!started) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long validUntil = System.currentTimeMillis() + leaseTtlSeconds * 1000L;
+        if (active) {
+            Integer renewed = transactionTemplate.execute(status ->
+                    eventRepository.renewLease(instanceId, now.plusSeconds(leaseTtlSeconds)));
+            if (renewed == null || renewed == 0) {
+                //paused for longer than the TTL and another instance took over, our state is stale now
+                active = false;
+                log.error("Instance {} took over the checkin event relay lease, standing by",
+                        eventRepository.findLeaseOwner());
+            } else {
+                leaseValidUntil = validUntil;
+            }
+            return;
+        }
+        Integer taken = transactionTemplate.execute(status ->
+                eventRepository.acquireLease(instanceId, now, now.plusSeconds(leaseTtlSeconds)));
+        if (taken != null && taken > 0) {
+            leaseValidUntil = validUntil;
+            takeOver();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void releaseLease() {
+        started = false;
+        if (active) {
+            active = false;
+            transactionTemplate.executeWithoutResult(status -> eventRepository.renewLease(instanceId, LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Have state a subscriber keeps from the checkins table rebuilt at startup,
+     * i.e. whenever this instance takes the lease (again). A rebuild replaces
+     * what the subscriber had, a standby's state is stale.
+     *
+     * Every rebuild runs in one repeatable read transaction together with
+     * skipping the outbox backlog, before anything is delivered. So a change
+     * committed before that snapshot is in the rebuilt state and its event is
+     * skipped, a later one is delivered: never both, never neither.
+     */
+    public void rebuildOnStartup(Runnable rebuild) {
+        startupRebuilds.add(rebuild);
+    }
+
+    /**
+     * Take the lease if it's free, or stand by until it is
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        started = true;
+        holdLease();
+        if (!active) {
+            log.info("Instance {} holds the checkin event relay lease, standing by until it's released",
+                    eventRepository.findLeaseOwner());
+        }
+    }
+
+    /**
+     * Skip the backlog, run the subscribers' rebuilds in the same snapshot, then start relaying
+     */
+    private void takeOver() {
+        TransactionTemplate snapshot = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        Integer skipped = snapshot.execute(status -> {
+            int count = eventRepository.markAllPublished(LocalDateTime.now());
+            startupRebuilds.forEach(Runnable::run);
+            return count;
+        });
+        if (skipped != null && skipped > 0) {
+            log.info("Skipped {} checkin events left in the outbox from before startup", skipped);
+        }
+        active = true;
+        log.info("Instance {} took the checkin event relay lease", instanceId);
+    }
+
+    @Scheduled(fixedDelayString = "${outside.events.relay-interval-ms:200}")
+    public void scheduledRelay() {
+        if (isActive()) {
+            relay();
+        }
+    }
+
+    /**
+     * Publish pending events until the outbox is empty or the bus is full
+     *
+     * @return number of events handed to the bus
+     */
+    public synchronized int relay() {
+        int total = 0;
+        while (true) {
+            Batch batch = transactionTemplate.execute(status -> publishBatch());
+            if (batch == null) {
+                return total;
+            }
+            total += batch.accepted();
+            //stop on an empty/short batch or when the bus pushed back
+            if (batch.accepted() < batchSize || batch.busFull()) {
+                return total;
+            }
+        }
+    }
+
+    private record Batch(int accepted, boolean busFull) {}
+
+    private Batch publishBatch() {
+        List<CheckinEvent> events = eventRepository.findUnpublished(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return new Batch(0, false);
+        }
+        int accepted = eventBus.offer(events);
+        if (accepted > 0) {
+            List<Long> ids = new ArrayList<>(accepted);
+            for (CheckinEvent event : events.subList(0, accepted)) {
+                ids.add(event.getId());
+            }
+            eventRepository.markPublished(ids, LocalDateTime.now());
+        }
+        return new Batch(accepted, accepted < events.size());
+    }
+
+    /**
+     * Drop published events older than retentionHours (every hour)
+     */
+    @Scheduled(fixedRate = 60 * 60 * 1000)
+    public void purgePublished() {
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        transactionTemplate.executeWithoutResult(status -> eventRepository.deletePublishedBefore(before));
+    }
+
+    private static String defaultInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown-host";
+        }
+        return host + ":" + ProcessHandle.current().pid();
+    }
+}
@@ -0,0 +1,107 @@
+package com.outside.api.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hashed timer wheel holding the auto-checkout deadline of every active checkin
+ *
+ * Time is cut into ticks of tickMillis. A checkin goes into the bucket of the
+ * first tick boundary at or after its deadline (modulo the wheel size), so
+ * registering is O(1), each tick only looks at one bucket and an entry is
+ * always due by the time its bucket is drained. Deadlines further out than one lap of the wheel
+ * just stay in their bucket until the lap that matches.
+ *
+ * This class only tracks deadlines, CheckinService decides what to do with the
+ * ids that come due.
+ */
+@Component
+public class CheckinExpiryWheel {
+
+    private static final int WHEEL_SIZE = 512;
+
+    private final long tickMillis;
+    private final List<ArrayDeque<Entry>> buckets = new ArrayList<>(WHEEL_SIZE);
+
+    //checkinId -> deadline, entries missing from here were cancelled
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    private long lastTick = -1;
+
+    private record Entry(long checkinId, long deadlineMillis) {}
+
+    public CheckinExpiryWheel(@Value("${outside.checkin.expiry-tick-ms:5000}") long tickMillis) {
+        this.tickMillis = tickMillis;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Schedule a checkin to expire at deadlineMillis (epoch millis)
+     */
+    public synchronized void register(long checkinId, long deadlineMillis) {
+        pending.put(checkinId, deadlineMillis);
+
+        //round up: flooring would file a deadline later inside the current tick into a
+        //bucket that is drained before it's due and not visited again for a whole lap.
+        //Never drop something into a bucket that has already been drained either.
+        long tick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), lastTick + 1);
+        buckets.get(bucketIndex(tick)).add(new Entry(checkinId, deadlineMillis));
+    }
+
+    /**
+     * Forget a checkin (checked out manually, deleted, ...)
+     * The bucket entry is left behind and skipped when its tick comes around.
+     */
+    public void cancel(long checkinId) {
+        pending.remove(checkinId);
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Move the wheel forward to nowMillis and return every checkin whose deadline
+     * has passed
+     */
+    public synchronized List<Long> advance(long nowMillis) {
+        long currentTick = nowMillis / tickMillis;
+        List<Long> due = new ArrayList<>();
+
+        //first run or a long pause: one full lap already visits every bucket
+        long fromTick = currentTick - WHEEL_SIZE + 1;
+        if (lastTick >= 0) {
+            fromTick = Math.max(lastTick + 1, fromTick);
+        }
+        for (long tick = fromTick; tick <= currentTick; tick++) {
+            Iterator<Entry> it = buckets.get(bucketIndex(tick)).iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                Long deadline = pending.get(entry.checkinId());
+                if (deadline == null || deadline != entry.deadlineMillis()) {
+                    //cancelled or re-registered with a new deadline
+                    it.remove();
+                } else if (entry.deadlineMillis() <= nowMillis) {
+                    it.remove();
+                    pending.remove(entry.checkinId());
+                    due.add(entry.checkinId());
+                }
+            }
+        }
+        lastTick = currentTick;
+        return due;
+    }
+
+    private static int bucketIndex(long tick) {
+        return (int) Math.floorMod(tick, (long) WHEEL_SIZE);
+    }
+}
@@ -1,22 +1,64 @@
 package com.outside.api.service;
 
+import com.outside.api.dto.CheckinBatchItem;
+import com.outside.api.dto.CheckinBatchResult;
+import com.outside.api.dto.CheckinDTO;
+import com.outside.api.dto.CheckinPage;
+import com.outside.api.dto.PendingCheckin;
 import com.outside.api.model.Checkin;
+import com.outside.api.model.CheckinEvent;
 import com.outside.api.model.User;
 import com.outside.api.model.Venue;
+import com.outside.api.repository.ArchivedCheckinRepository;
+import com.outside.api.repository.CheckinEventRepository;
 import com.outside.api.repository.CheckinRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import com.outside.api.repository.UserRepository;
-import com.outside.api.repository.VenueRepository;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed("outside.service")
 public class CheckinService {
+    private static final Logger log = LoggerFactory.getLogger(CheckinService.class);
+
     @Autowired
     private CheckinRepository checkinRepository;
 
@@ -24,14 +66,67 @@ public class CheckinService {
     private UserRepository userRepository;
 
     @Autowired
-    private VenueRepository venueRepository;
+    private VenueService venueService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CheckinExpiryWheel expiryWheel;
+
+    @Autowired
+    private CheckinEventRepository eventRepository;
+
+    @Autowired
+    private CheckinEventBus eventBus;
+
+    @Autowired
+    private CheckinEventRelay eventRelay;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CheckinSessionRegistry sessionRegistry;
+
+    @Autowired
+    private ArchivedCheckinRepository archivedCheckinRepository;
+
+    @Autowired
+    private CheckinArchiver archiver;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //how many expired checkins the auto-checkout job closes per transaction
+    @Value("${outside.checkin.auto-checkout-chunk-size:500}")
+    private int autoCheckoutChunkSize;
 
     private static final int AUTO_CHECKOUT_HOURS = 2;
-    private static final int COOLDOWN_MINUTES = 20;
+    static final int COOLDOWN_MINUTES = 20;
+    private static final int USER_LOCK_STRIPES = 1024;
+    //rows per JDBC batch for the batch check-in writes
+    private static final int JDBC_BATCH_SIZE = 50;
+
+    //checkinUser serializes per user on these, users hash onto a fixed set of locks
+    private final ReentrantLock[] userLocks = newLocks(USER_LOCK_STRIPES);
 
     /**
      * User checks in to a venue (validate user, validate venue, check cooldown,
      * auto checkout, create new checkin)
+     *
+     * Two taps from the same user must not both pass the checks below, so the
+     * whole read-check-write runs with the user's row locked (SELECT ... FOR
+     * UPDATE), which also holds across instances. Threads of this instance first
+     * queue on a per-user lock stripe, so they wait without holding a pooled
+     * connection and a row lock.
+     *
+     * Already-checked-in and cooldown are answered by CheckinSessionRegistry, so
+     * apart from the user lock only the writes go to the database. If the session
+     * was stale (a checkin opened by another instance or straight in the database)
+     * the one-open-checkin index rejects the insert, the rollback drops the
+     * session and the check-in is retried once against a fresh one. A session that
+     * would refuse the check-in is reloaded first (see lookupSession).
      * 
      * @param userId  ID of the user checking in
      * @param venueId ID of the venue to check in to
@@ -39,46 +134,358 @@ public class CheckinService {
      * @throws RuntimeException if user or venue not found, or if user is in
      * cooldown period
      */
-    @Transactional
     public Checkin checkinUser(Long userId, Long venueId) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
+        ReentrantLock lock = userLocks[lockStripe(userId)];
+        lock.lock();
+        try {
+            try {
+                return transactionTemplate.execute(status -> checkinLocked(userId, venueId));
+            } catch (DataIntegrityViolationException e) {
+                sessionRegistry.evict(userId);
+                return transactionTemplate.execute(status -> checkinLocked(userId, venueId));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Checkin checkinLocked(Long userId, Long venueId) {
+        User user = userRepository.findByIdForUpdate(userId).orElseThrow(() -> new RuntimeException("User not found"));
 
         //Venue validation
-        Venue venue = venueRepository.findById(venueId).orElseThrow(() -> new RuntimeException("Venue not found"));
+        Venue venue = venueService.getVenuebyId(venueId).orElseThrow(() -> new RuntimeException("Venue not found"));
 
-        //check cooldown
-        Optional<Checkin> lastCheckin = checkinRepository.findFirstByUserIdAndVenueIdOrderByCheckinTimeDesc(userId, venueId);
+        //already checked in / cooldown, from memory
+        CheckinSessionRegistry.Lookup session = lookupSession(userId, venueId);
+        String refused = writeNowRefusal(session, venueId);
+        if (refused != null) {
+            throw new RuntimeException(refused);
+        }
+
+        //Auto checkout the checkin still open at another venue, written before the insert below
+        //(the schema allows one open checkin per user)
+        if (session.activeCheckinId() > 0) {
+            closeLockedCheckins(checkinRepository.lockActiveCheckins(List.of(session.activeCheckinId())),
+                    CheckinEvent.Type.CHECKED_OUT);
+        }
+
+        //create new checking
+        Checkin newCheckin = new Checkin();
+        newCheckin.setUser(user);
+        newCheckin.setVenue(venue);
+        newCheckin.setCheckinTime(LocalDateTime.now());
+        Checkin saved = checkinRepository.save(newCheckin);
+        recordEvent(CheckinEvent.Type.CHECKED_IN, saved, saved.getCheckinTime());
+        trackSessions(List.of(userId), () -> sessionRegistry.checkedIn(userId, saved.getId(), venueId));
+        return saved;
+    }
+
+    //session for a check-in, reloaded from the database if the one in memory would refuse it: a
+    //checkin closed behind the registry's back must not keep the user out until the next restart
+    private CheckinSessionRegistry.Lookup lookupSession(long userId, long venueId) {
+        CheckinSessionRegistry.Lookup session = sessionRegistry.lookup(userId, venueId);
+        if (session != null && refusal(session, venueId) != null) {
+            sessionRegistry.reload(List.of(userId));
+            session = sessionRegistry.lookup(userId, venueId);
+        }
+        return session;
+    }
 
-        if(lastCheckin.isPresent()) {
-            Checkin previous = lastCheckin.get();
+    //refusal for a check-in written right away (not through the write-behind buffer): a buffered
+    //check-in of the user would be written after it and leave them at the older venue
+    private static String writeNowRefusal(CheckinSessionRegistry.Lookup session, long venueId) {
+        String refused = refusal(session, venueId);
+        if (refused == null && session.activeCheckinId() == CheckinSessionRegistry.PENDING) {
+            return "Previous check-in is still being saved, try again";
+        }
+        return refused;
+    }
 
-            if (previous.getCheckoutTime() == null) {
-                throw new RuntimeException("User is already checked in to this venue");
+    //why a check-in at venueId is refused (no such user, already checked in there, cooldown), null if it's fine
+    private static String refusal(CheckinSessionRegistry.Lookup session, long venueId) {
+        if (session == null) {
+            return "User not found";
+        }
+        if (session.activeCheckinId() != 0 && session.activeVenueId() == venueId) {
+            return "User is already checked in to this venue";
+        }
+        if (session.lastCheckoutMillis() == 0) {
+            return null;
+        }
+        long minutesAgo = (System.currentTimeMillis() - session.lastCheckoutMillis()) / 60_000;
+        if (minutesAgo >= COOLDOWN_MINUTES) {
+            return null;
+        }
+        return "User is in Cooldown. Try again in " + (COOLDOWN_MINUTES - minutesAgo) + " minutes.";
+    }
+
+    /**
+     * Accept a check-in for write-behind ingestion (CheckinWriteBehind): the same
+     * rules as checkinUser, decided from the session table and the venue cache
+     * without a database round trip, and nothing written yet
+     *
+     * The user's session is switched to the pending checkin and the check-in is
+     * handed to enqueue while the user's lock is held, so one user's check-ins
+     * reach the writer in the order they were accepted. If enqueue throws the
+     * session is evicted again and the exception goes to the caller.
+     *
+     * @throws RuntimeException if user or venue not found, or the user is already
+     * checked in there or in cooldown
+     */
+    public PendingCheckin admitCheckin(Long userId, Long venueId, Consumer<PendingCheckin> enqueue) {
+        ReentrantLock lock = userLocks[lockStripe(userId)];
+        lock.lock();
+        try {
+            venueService.getVenuebyId(venueId).orElseThrow(() -> new RuntimeException("Venue not found"));
+            CheckinSessionRegistry.Lookup session = lookupSession(userId, venueId);
+            String refused = refusal(session, venueId);
+            if (refused != null) {
+                throw new RuntimeException(refused);
             }
 
-            //Calculate time since last checkout
-            LocalDateTime lastCheckout = previous.getCheckoutTime();
-            long minutesAgo = ChronoUnit.MINUTES.between(lastCheckout, LocalDateTime.now());
+            PendingCheckin pending = new PendingCheckin(userId, venueId, LocalDateTime.now());
+            if (session.activeCheckinId() != 0) {
+                sessionRegistry.checkedOut(userId, session.activeCheckinId(), session.activeVenueId(),
+                        toMillis(pending.checkinTime()));
+            }
+            sessionRegistry.checkedIn(userId, CheckinSessionRegistry.PENDING, venueId);
+            try {
+                enqueue.accept(pending);
+            } catch (RuntimeException e) {
+                sessionRegistry.evict(userId);
+                throw e;
+            }
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write a batch of accepted write-behind check-ins in one transaction (group commit)
+     *
+     * Whatever the batch's users still have open in the database is closed first
+     * (one locking select, one bulk UPDATE). A user with several check-ins in the
+     * batch gets the earlier ones written already closed at the time of the next
+     * one. Users and the new checkins and events go out as one select and JDBC
+     * batches.
+     *
+     * @return one result per check-in, in batch order: the saved checkin or why it wasn't written
+     */
+    public List<CheckinBatchResult> writeAdmitted(List<PendingCheckin> batch) {
+        return transactionTemplate.execute(status -> writeAdmittedLocked(batch));
+    }
+
+    private List<CheckinBatchResult> writeAdmittedLocked(List<PendingCheckin> batch) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(JDBC_BATCH_SIZE);
+        Set<Long> userIds = new HashSet<>();
+        for (PendingCheckin pending : batch) {
+            userIds.add(pending.userId());
+        }
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            users.put(user.getId(), user);
+        }
+        closeLockedCheckins(checkinRepository.lockActiveCheckinsOfUsers(users.keySet()), CheckinEvent.Type.CHECKED_OUT);
+
+        //walk backwards so every check-in knows when the same user's next one starts
+        LocalDateTime[] closedAt = new LocalDateTime[batch.size()];
+        Map<Long, LocalDateTime> nextCheckin = new HashMap<>();
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            closedAt[i] = nextCheckin.put(batch.get(i).userId(), batch.get(i).checkinTime());
+        }
+
+        String[] errors = new String[batch.size()];
+        Checkin[] created = new Checkin[batch.size()];
+        List<Checkin> newCheckins = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            PendingCheckin pending = batch.get(i);
+            Optional<Venue> venue = venueService.getVenuebyId(pending.venueId());
+            if (!users.containsKey(pending.userId())) {
+                errors[i] = "User not found";
+            } else if (venue.isEmpty()) {
+                errors[i] = "Venue not found";
+            } else {
+                Checkin checkin = new Checkin();
+                checkin.setUser(users.get(pending.userId()));
+                checkin.setVenue(venue.get());
+                checkin.setCheckinTime(pending.checkinTime());
+                checkin.setCheckoutTime(closedAt[i]);
+                created[i] = checkin;
+                newCheckins.add(checkin);
+            }
+        }
+        checkinRepository.saveAll(newCheckins);
 
-            //if last w/i cooldown period, throw error
-            if (minutesAgo < COOLDOWN_MINUTES) {
-                throw new RuntimeException("User is in Cooldown. Try again in " + (COOLDOWN_MINUTES - minutesAgo) + " minutes.");
+        List<CheckinEvent> events = new ArrayList<>(newCheckins.size());
+        for (Checkin checkin : newCheckins) {
+            events.add(CheckinEvent.of(CheckinEvent.Type.CHECKED_IN, checkin.getId(),
+                    checkin.getUser().getId(), checkin.getVenue().getId(), checkin.getCheckinTime()));
+            if (checkin.getCheckoutTime() != null) {
+                events.add(CheckinEvent.of(CheckinEvent.Type.CHECKED_OUT, checkin.getId(),
+                        checkin.getUser().getId(), checkin.getVenue().getId(), checkin.getCheckoutTime()));
             }
         }
+        eventRepository.saveAll(events);
+        trackSessions(userIds, () -> {
+            for (Checkin checkin : newCheckins) {
+                if (checkin.getCheckoutTime() == null) {
+                    sessionRegistry.resolvePending(checkin.getUser().getId(), checkin.getVenue().getId(), checkin.getId());
+                }
+            }
+        });
+        return batchResults(errors, created);
+    }
 
-        //Auto checkout any expired checkins for this user
-        List<Checkin> activeCheckins = checkinRepository.findByUserIdAndCheckoutTimeIsNull(userId);
-        for (Checkin checkin:activeCheckins) {
-            checkin.setCheckoutTime(LocalDateTime.now());
-            checkinRepository.save(checkin);
+    /**
+     * Check in a group of users at once (e.g. arriving together at an event)
+     *
+     * Same rules as checkinUser for every item, but each step is one query for
+     * the whole batch: users (locked), venues, sessions of users the session
+     * table hasn't seen yet, a reload of the sessions that would refuse, the open
+     * checkins to close. The closed and new
+     * checkins plus their events go out as JDBC batches, all in one transaction.
+     * A user may appear only once per batch, and is refused while a write-behind
+     * check-in of theirs is still buffered (it would be written after this one).
+     *
+     * @return one result per item, in request order: the new checkin or why it was refused
+     */
+    public List<CheckinBatchResult> checkinUsers(List<CheckinBatchItem> items) {
+        //every stripe once, in index order, so batches can't deadlock each other or checkinUser
+        int[] stripes = items.stream()
+                .filter(item -> item.userId() != null)
+                .mapToInt(item -> lockStripe(item.userId()))
+                .distinct().sorted().toArray();
+        for (int stripe : stripes) {
+            userLocks[stripe].lock();
         }
+        try {
+            return transactionTemplate.execute(status -> checkinBatchLocked(items));
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                userLocks[stripes[i]].unlock();
+            }
+        }
+    }
 
-        //create new checking
-        Checkin newCheckin = new Checkin();
-        newCheckin.setUser(user);
-        newCheckin.setVenue(venue);
-        newCheckin.setCheckinTime(LocalDateTime.now());
-        return checkinRepository.save(newCheckin);
+    private List<CheckinBatchResult> checkinBatchLocked(List<CheckinBatchItem> items) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(JDBC_BATCH_SIZE);
+        LocalDateTime now = LocalDateTime.now();
+        String[] errors = new String[items.size()];
+
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> venueIds = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            CheckinBatchItem item = items.get(i);
+            if (item.userId() == null) {
+                errors[i] = "User ID is required";
+            } else if (item.venueId() == null) {
+                errors[i] = "Venue ID is required";
+            } else if (!userIds.add(item.userId())) {
+                errors[i] = "User appears more than once in this batch";
+            } else {
+                venueIds.add(item.venueId());
+            }
+        }
+        if (userIds.isEmpty()) {
+            return batchResults(errors, new Checkin[items.size()]);
+        }
+
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userRepository.findAllByIdForUpdate(userIds)) {
+            users.put(user.getId(), user);
+        }
+        Map<Long, Venue> venues = new HashMap<>();
+        for (Venue venue : venueService.getVenuesByIds(venueIds)) {
+            venues.put(venue.getId(), venue);
+        }
+
+        //sessions of users not seen yet come in with one query, the checks below are in memory
+        sessionRegistry.load(users.keySet());
+        //except that sessions which would refuse are reloaded first, again one query for all of them
+        List<Long> refusedUsers = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            CheckinBatchItem item = items.get(i);
+            if (errors[i] == null && users.containsKey(item.userId()) && venues.containsKey(item.venueId())
+                    && refusal(sessionRegistry.lookup(item.userId(), item.venueId()), item.venueId()) != null) {
+                refusedUsers.add(item.userId());
+            }
+        }
+        if (!refusedUsers.isEmpty()) {
+            sessionRegistry.reload(refusedUsers);
+        }
+
+        Set<Long> accepted = new HashSet<>();
+        List<Long> openElsewhere = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+            CheckinBatchItem item = items.get(i);
+            if (!users.containsKey(item.userId())) {
+                errors[i] = "User not found";
+                continue;
+            }
+            if (!venues.containsKey(item.venueId())) {
+                errors[i] = "Venue not found";
+                continue;
+            }
+            CheckinSessionRegistry.Lookup session = sessionRegistry.lookup(item.userId(), item.venueId());
+            String refused = writeNowRefusal(session, item.venueId());
+            if (refused != null) {
+                errors[i] = refused;
+            } else {
+                accepted.add(item.userId());
+                if (session.activeCheckinId() > 0) {
+                    openElsewhere.add(session.activeCheckinId());
+                }
+            }
+        }
+        Checkin[] created = new Checkin[items.size()];
+        if (accepted.isEmpty()) {
+            return batchResults(errors, created);
+        }
+
+        //close the accepted users' open checkins elsewhere, written before the inserts (one open checkin per user)
+        if (!openElsewhere.isEmpty()) {
+            closeLockedCheckins(checkinRepository.lockActiveCheckins(openElsewhere), CheckinEvent.Type.CHECKED_OUT);
+        }
+
+        List<Checkin> newCheckins = new ArrayList<>(accepted.size());
+        for (int i = 0; i < items.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+            Checkin checkin = new Checkin();
+            checkin.setUser(users.get(items.get(i).userId()));
+            checkin.setVenue(venues.get(items.get(i).venueId()));
+            checkin.setCheckinTime(now);
+            created[i] = checkin;
+            newCheckins.add(checkin);
+        }
+        checkinRepository.saveAll(newCheckins);
+        List<CheckinEvent> events = new ArrayList<>(newCheckins.size());
+        for (Checkin checkin : newCheckins) {
+            events.add(CheckinEvent.of(CheckinEvent.Type.CHECKED_IN, checkin.getId(),
+                    checkin.getUser().getId(), checkin.getVenue().getId(), now));
+        }
+        eventRepository.saveAll(events);
+        trackSessions(accepted, () -> {
+            for (Checkin checkin : newCheckins) {
+                sessionRegistry.checkedIn(checkin.getUser().getId(), checkin.getId(), checkin.getVenue().getId());
+            }
+        });
+        return batchResults(errors, created);
+    }
+
+    private static List<CheckinBatchResult> batchResults(String[] errors, Checkin[] checkins) {
+        List<CheckinBatchResult> results = new ArrayList<>(errors.length);
+        for (int i = 0; i < errors.length; i++) {
+            results.add(errors[i] != null
+                    ? CheckinBatchResult.failed(i, errors[i])
+                    : CheckinBatchResult.ok(i, CheckinDTO.from(checkins[i])));
+        }
+        return results;
     }
 
     /**
@@ -90,7 +497,8 @@ public class CheckinService {
      */
     @Transactional
     public Checkin checkoutUser(Long checkinId) {
-        Checkin checkin = checkinRepository.findById(checkinId)
+        //row lock so a double tap (or the expiry job) can't close it twice
+        Checkin checkin = checkinRepository.findByIdForUpdate(checkinId)
                 .orElseThrow(() -> new RuntimeException("Checkin not found"));
         
         if (checkin.getCheckoutTime() != null) {
@@ -98,55 +506,399 @@ public class CheckinService {
         }
 
         checkin.setCheckoutTime(LocalDateTime.now());
-        return checkinRepository.save(checkin);
+        Checkin saved = checkinRepository.save(checkin);
+        recordEvent(CheckinEvent.Type.CHECKED_OUT, saved, saved.getCheckoutTime());
+        Long userId = saved.getUser().getId();
+        long checkoutMillis = toMillis(saved.getCheckoutTime());
+        trackSessions(List.of(userId), () -> sessionRegistry.checkedOut(userId, saved.getId(),
+                saved.getVenue().getId(), checkoutMillis));
+        return saved;
+    }
+
+    /**
+     * Check out several checkins at once: one locking select, one bulk UPDATE, one
+     * batch of events and one select for the results
+     *
+     * @return one result per id, in request order: the closed checkin or why it wasn't closed
+     */
+    @Transactional
+    public List<CheckinBatchResult> checkoutCheckins(List<Long> checkinIds) {
+        String[] errors = new String[checkinIds.size()];
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < checkinIds.size(); i++) {
+            Long id = checkinIds.get(i);
+            if (id == null) {
+                errors[i] = "Checkin ID is required";
+            } else if (!ids.add(id)) {
+                errors[i] = "Checkin appears more than once in this batch";
+            }
+        }
+        if (ids.isEmpty()) {
+            return batchResults(errors, new Checkin[checkinIds.size()]);
+        }
+
+        entityManager.unwrap(Session.class).setJdbcBatchSize(JDBC_BATCH_SIZE);
+        List<Object[]> locked = checkinRepository.lockActiveCheckins(new ArrayList<>(ids));
+        closeLockedCheckins(locked, CheckinEvent.Type.CHECKED_OUT);
+
+        Map<Long, CheckinDTO> closed = new HashMap<>();
+        if (!locked.isEmpty()) {
+            for (CheckinDTO dto : checkinRepository.findCheckinDTOsByIds(
+                    locked.stream().map(row -> ((Number) row[0]).longValue()).toList())) {
+                closed.put(dto.id(), dto);
+            }
+        }
+        Set<Long> notClosed = new HashSet<>(ids);
+        notClosed.removeAll(closed.keySet());
+        Set<Long> existing = notClosed.isEmpty() ? Set.of() : new HashSet<>(checkinRepository.findExistingIds(notClosed));
+
+        List<CheckinBatchResult> results = new ArrayList<>(checkinIds.size());
+        for (int i = 0; i < checkinIds.size(); i++) {
+            Long id = checkinIds.get(i);
+            if (errors[i] != null) {
+                results.add(CheckinBatchResult.failed(i, errors[i]));
+            } else if (closed.containsKey(id)) {
+                results.add(CheckinBatchResult.ok(i, closed.get(id)));
+            } else if (existing.contains(id)) {
+                results.add(CheckinBatchResult.failed(i, "User already checked out from this venue"));
+            } else {
+                results.add(CheckinBatchResult.failed(i, "Checkin not found"));
+            }
+        }
+        return results;
     }
 
     /**
      * Get currently active checkins for a venue
      * 
      * @param venueId ID of the venue
-     * @return List of active Checkin records for the venue
+     * @return List of active checkins for the venue as DTOs (single query)
      */
-
-    public List<Checkin> getActiveCheckinsForVenue(Long venueId) {
-        return checkinRepository.findByVenueIdAndCheckoutTimeIsNull(venueId);
+    public List<CheckinDTO> getActiveCheckinsForVenue(Long venueId) {
+        return checkinRepository.findActiveCheckinDTOsByVenueId(venueId);
     }
 
+    //history order, newest first
+    private static final Comparator<CheckinDTO> NEWEST_FIRST =
+            Comparator.comparing(CheckinDTO::checkinTime).thenComparing(CheckinDTO::id).reversed();
+
     /**
-     * Get checkin history for a user
-     * 
+     * Get one page of checkin history for a user (keyset pagination on checkinTime, id)
+     * Reads the hot table, and the archive too once the page reaches back past
+     * the archive horizon, the cursor works the same across both. Both reads share
+     * one snapshot, so a checkin the archiver moves in between shows up once.
+     *
      * @param userId ID of the user
-     * @return List of Checkin records for the user
+     * @param cursor next cursor from the previous page, or null for the first page
+     * @param limit  max number of checkins to return
+     * @return checkins for the user as DTOs, newest first, plus the cursor for the next page
+     * @throws IllegalArgumentException if the cursor can't be decoded
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public CheckinPage getCheckinHistoryForUser(Long userId, String cursor, int limit) {
+        //ask for one extra row to know whether there is a next page
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        boolean first = cursor == null || cursor.isEmpty();
+        String[] parts = first ? null : decodeCursor(cursor);
+        List<CheckinDTO> rows = first
+                ? checkinRepository.findCheckinDTOsByUserId(userId, pageRequest)
+                : checkinRepository.findCheckinDTOsByUserIdBefore(userId,
+                        LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]), pageRequest);
+
+        //archived checkins all started before the horizon, a full page newer than that can't contain any
+        if (rows.size() <= limit || rows.get(limit).checkinTime().isBefore(archiver.horizon())) {
+            List<CheckinDTO> archived = first
+                    ? archivedCheckinRepository.findCheckinDTOsByUserId(userId, pageRequest)
+                    : archivedCheckinRepository.findCheckinDTOsByUserIdBefore(userId,
+                            LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]), pageRequest);
+            if (!archived.isEmpty()) {
+                List<CheckinDTO> merged = new ArrayList<>(limit + 1);
+                mergeNewestFirst(rows.iterator(), archived.iterator(), limit + 1, merged::add);
+                rows = merged;
+            }
+        }
+
+        if (rows.size() <= limit) {
+            return new CheckinPage(rows, null);
+        }
+        List<CheckinDTO> page = rows.subList(0, limit);
+        CheckinDTO last = page.get(limit - 1);
+        return new CheckinPage(page, encodeCursor(last.checkinTime(), last.id()));
+    }
+
+    /**
+     * Stream a user's whole checkin history, newest first, without holding it in memory
+     * Rows come off two JDBC cursors (hot table and archive) in one snapshot,
+     * merged as they go, and are handed to the consumer one at a time.
+     *
+     * @param userId   ID of the user
+     * @param consumer called once per checkin
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void streamCheckinHistoryForUser(Long userId, Consumer<CheckinDTO> consumer) {
+        try (Stream<CheckinDTO> hot = checkinRepository.streamCheckinDTOsByUserId(userId);
+             Stream<CheckinDTO> archived = archivedCheckinRepository.streamCheckinDTOsByUserId(userId)) {
+            mergeNewestFirst(hot.iterator(), archived.iterator(), Integer.MAX_VALUE, consumer);
+        }
+    }
+
+    //merge two newest-first sequences into one, up to limit rows
+    //a checkin in both (copied to the archive, not deleted from the hot table yet) is passed on once
+    private static void mergeNewestFirst(Iterator<CheckinDTO> a, Iterator<CheckinDTO> b, int limit,
+                                         Consumer<CheckinDTO> consumer) {
+        CheckinDTO nextA = a.hasNext() ? a.next() : null;
+        CheckinDTO nextB = b.hasNext() ? b.next() : null;
+        for (int i = 0; i < limit && (nextA != null || nextB != null); i++) {
+            int order = nextA == null ? 1 : nextB == null ? -1 : NEWEST_FIRST.compare(nextA, nextB);
+            if (order == 0) {
+                nextB = b.hasNext() ? b.next() : null;
+            }
+            if (order <= 0) {
+                consumer.accept(nextA);
+                nextA = a.hasNext() ? a.next() : null;
+            } else {
+                consumer.accept(nextB);
+                nextB = b.hasNext() ? b.next() : null;
+            }
+        }
+    }
+
+    //cursor is base64url("<checkinTime>|<id>") of the last row on the page
+    private static String encodeCursor(LocalDateTime checkinTime, Long id) {
+        String raw = checkinTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            LocalDateTime.parse(parts[0]);
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Reload the expiry deadline of every active checkin into the timer wheel
+     * Runs once at startup (in CheckinEventRelay's startup snapshot) so a restart
+     * doesn't lose pending auto-checkouts
      */
-    public List<Checkin> getCheckinHistoryForUser(Long userId) {
-        return checkinRepository.findByUserIdOrderByCheckinTimeDesc(userId);
+    public void loadExpiryDeadlines() {
+        for (Object[] row : checkinRepository.findActiveCheckinTimes()) {
+            expiryWheel.register((Long) row[0], expiryDeadline((LocalDateTime) row[1]));
+        }
+    }
+
+    /**
+     * Auto-checkout checkins that reached AUTO_CHECKOUT_HOURS, driven by the timer wheel
+     * Runs every tick (outside.checkin.expiry-tick-ms, default 5 seconds) so users are
+     * checked out within a tick of their deadline and the writes are spread out
+     * instead of landing in one hourly burst.
+     *
+     * @return number of checkins closed
+     */
+    @Scheduled(fixedDelayString = "${outside.checkin.expiry-tick-ms:5000}")
+    public int expireDueCheckins() {
+        if (!eventRelay.isActive()) {
+            //a standby's wheel doesn't follow the outbox, the lease holder closes these
+            return 0;
+        }
+        List<Long> due = expiryWheel.advance(System.currentTimeMillis());
+
+        int total = 0;
+        for (int from = 0; from < due.size(); from += autoCheckoutChunkSize) {
+            List<Long> chunk = due.subList(from, Math.min(from + autoCheckoutChunkSize, due.size()));
+            total += runAutoCheckoutChunk("wheel", status ->
+                    closeLockedCheckins(checkinRepository.lockActiveCheckins(chunk), CheckinEvent.Type.AUTO_EXPIRED));
+        }
+        return total;
     }
 
     /**
-     * Scheduled task to auto-checkout users who have been checked in for more than
-     * AUTO_CHECKOUT_HOURS
-     * Runs every hour
+     * Backstop sweep for expired checkins the timer wheel doesn't know about
+     * (e.g. rows written straight to the database). Runs every hour, on the
+     * instance holding the relay lease
+     *
+     * Works in chunks of autoCheckoutChunkSize: each chunk locks a batch of
+     * expired rows and closes them with one bulk UPDATE in its own short
+     * transaction, so memory and lock time stay bounded however big the backlog is.
+     *
+     * @return total number of checkins closed by this run
      */
     @Scheduled(fixedRate = 60 * 60 * 1000) //every hour
-    @Transactional
-    public void autoCheckoutExpiredCheckins() {
+    public int autoCheckoutExpiredCheckins() {
+        if (!eventRelay.isActive()) {
+            return 0; //the lease holder sweeps
+        }
         //calculate 2 hours ago
         LocalDateTime twoHoursAgo = LocalDateTime.now().minusHours(AUTO_CHECKOUT_HOURS);
 
-        //find allexpired checkins (older than 2 hours && checkoutTime is null)
-        List<Checkin> expiredCheckins = checkinRepository.findExpiredCheckins(twoHoursAgo);
-        
-        //checkout each one
-        for (Checkin checkin : expiredCheckins) {
-            checkin.setCheckoutTime(LocalDateTime.now());
-            checkinRepository.save(checkin);
+        int total = 0;
+        int chunks = 0;
+        while (true) {
+            int affected = runAutoCheckoutChunk("sweep", status ->
+                    closeLockedCheckins(checkinRepository.lockExpiredCheckins(twoHoursAgo, autoCheckoutChunkSize),
+                            CheckinEvent.Type.AUTO_EXPIRED));
+            if (affected == 0) {
+                break;
+            }
+            total += affected;
+            chunks++;
+            if (affected < autoCheckoutChunkSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            log.info("Auto-checkout closed {} expired checkins in {} chunk(s)", total, chunks);
+        }
+        return total;
+    }
+
+    /**
+     * Run one auto-checkout chunk in its own transaction and record how long it
+     * took and how many checkins it closed, tagged with what triggered it
+     * (wheel or sweep). Empty chunks aren't recorded.
+     */
+    private int runAutoCheckoutChunk(String trigger, TransactionCallback<Integer> chunk) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Integer affected = transactionTemplate.execute(chunk);
+        int closed = affected == null ? 0 : affected;
+        if (closed > 0) {
+            sample.stop(meterRegistry.timer("outside.checkin.auto_checkout.batch", "trigger", trigger));
+            DistributionSummary.builder("outside.checkin.auto_checkout.batch.size")
+                    .tag("trigger", trigger)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue((double) autoCheckoutChunkSize)
+                    .register(meterRegistry)
+                    .record(closed);
+        }
+        return closed;
+    }
+
+    /**
+     * Close checkins that were locked by lockExpiredCheckins/lockActiveCheckins
+     * (rows are [id, venueId, userId]) and record an event of the given type for each,
+     * must run inside the same transaction as the lock
+     */
+    private int closeLockedCheckins(List<Object[]> rows, CheckinEvent.Type type) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = new ArrayList<>(rows.size());
+        Set<Long> userIds = new HashSet<>();
+        List<CheckinEvent> events = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Long id = ((Number) row[0]).longValue();
+            ids.add(id);
+            userIds.add(((Number) row[2]).longValue());
+            events.add(CheckinEvent.of(type, id,
+                    ((Number) row[2]).longValue(), ((Number) row[1]).longValue(), now));
+        }
+
+        int affected = checkinRepository.checkoutAll(ids, now);
+        eventRepository.saveAll(events);
+        long checkoutMillis = toMillis(now);
+        trackSessions(userIds, () -> {
+            for (CheckinEvent event : events) {
+                sessionRegistry.checkedOut(event.getUserId(), event.getCheckinId(), event.getVenueId(), checkoutMillis);
+            }
+        });
+        return affected;
+    }
+
+    /**
+     * Add a lifecycle event to the outbox, in the caller's transaction
+     */
+    private void recordEvent(CheckinEvent.Type type, Checkin checkin, LocalDateTime occurredAt) {
+        eventRepository.save(CheckinEvent.of(type, checkin.getId(),
+                checkin.getUser().getId(), checkin.getVenue().getId(), occurredAt));
+    }
+
+    @PostConstruct
+    public void subscribeToEvents() {
+        eventBus.subscribe(this::onCheckinEvent);
+        eventRelay.rebuildOnStartup(this::loadExpiryDeadlines);
+    }
+
+    //keep the timer wheel in step with committed checkins/checkouts
+    private void onCheckinEvent(CheckinEvent event) {
+        if (event.getType() == CheckinEvent.Type.CHECKED_IN) {
+            expiryWheel.register(event.getCheckinId(), expiryDeadline(event.getOccurredAt()));
+        } else {
+            expiryWheel.cancel(event.getCheckinId());
         }
     }
 
+    private static int lockStripe(Long userId) {
+        return Math.floorMod(Long.hashCode(userId), USER_LOCK_STRIPES);
+    }
+
+    private static ReentrantLock[] newLocks(int count) {
+        ReentrantLock[] locks = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private static long expiryDeadline(LocalDateTime checkinTime) {
+        return toMillis(checkinTime.plusHours(AUTO_CHECKOUT_HOURS));
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @Transactional
     public void deleteCheckin(Long checkinId) {
-    Checkin checkin = checkinRepository.findById(checkinId)
-        .orElseThrow(() -> new RuntimeException("Checkin not found"));
-    
-    checkinRepository.delete(checkin);
-}
+        Optional<Checkin> found = checkinRepository.findById(checkinId);
+        if (found.isEmpty()) {
+            //long closed, nothing in memory knows about archived checkins
+            if (!archivedCheckinRepository.existsById(checkinId)) {
+                throw new RuntimeException("Checkin not found");
+            }
+            archivedCheckinRepository.deleteById(checkinId);
+            return;
+        }
+        Checkin checkin = found.get();
+
+        checkinRepository.delete(checkin);
+        Long userId = checkin.getUser().getId();
+        trackSessions(List.of(userId), () -> sessionRegistry.removed(userId, checkinId));
+        if (checkin.getCheckoutTime() == null) {
+            //the user left as far as everyone watching is concerned: occupancy, expiry wheel,
+            //live feed, trending and stats all hear it from the outbox like any other checkout
+            recordEvent(CheckinEvent.Type.CHECKED_OUT, checkin, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Apply a session table change right away, so the rest of this transaction
+     * (and the next check-in of the same user) sees it, and evict the users'
+     * sessions if the transaction rolls back. They reload from the database on
+     * their next check-in.
+     */
+    private void trackSessions(Collection<Long> userIds, Runnable change) {
+        change.run();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    userIds.forEach(sessionRegistry::evict);
+                }
+            }
+        });
+    }
 }
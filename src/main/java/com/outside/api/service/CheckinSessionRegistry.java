@@ -0,0 +1,423 @@
+package com.outside.api.service;
+
+import com.outside.api.repository.CheckinRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * In-memory table of every user's check-in session: the checkin they have open
+ * (if any) and the venues they checked out of inside the cooldown window
+ *
+ * checkinUser answers "already checked in?" and "still in cooldown?" from here
+ * instead of querying checkins. CheckinService updates a session as soon as it
+ * writes the change and evicts it again if the transaction rolls back, so the
+ * table never holds a state the database doesn't.
+ *
+ * Active and recently active users are loaded at startup (in CheckinEventRelay's
+ * startup snapshot, so again when a standby takes over). Anyone else is loaded
+ * from the database the first time they show up (one indexed query, users with
+ * nothing open are cached as empty too). Rows written behind the service's back
+ * (another instance, a fix made straight in the database) can leave a session
+ * stale, so a check-in is never refused from memory alone: CheckinService
+ * reloads the session before it refuses.
+ * Ids that aren't users get no session, which is how write-behind check-ins
+ * tell an unknown user without a query.
+ *
+ * A write-behind check-in is accepted before it has a row, its session holds
+ * PENDING as the open checkin id until the writer resolves it.
+ *
+ * Keys are primitive longs in open addressing tables, split into stripes with
+ * their own monitor, so lookups don't box ids or contend on one lock.
+ */
+@Component
+public class CheckinSessionRegistry {
+
+    private static final int STRIPES = 64;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final long COOLDOWN_MILLIS = CheckinService.COOLDOWN_MINUTES * 60_000L;
+    private static final long[] NO_CHECKOUTS = new long[0];
+
+    //open checkin id of a write-behind check-in that isn't written yet
+    public static final long PENDING = -1;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private CheckinEventRelay eventRelay;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public CheckinSessionRegistry() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * What checkinUser needs to know about a user: the open checkin (0 if none)
+     * with its venue, and the last checkout at the given venue inside the
+     * cooldown window (0 if none)
+     */
+    public record Lookup(long activeCheckinId, long activeVenueId, long lastCheckoutMillis) {}
+
+    @PostConstruct
+    public void registerRebuild() {
+        eventRelay.rebuildOnStartup(this::loadRecentSessions);
+    }
+
+    /**
+     * Warm up the table with everyone who has a checkin open or closed one
+     * inside the cooldown window, dropping whatever it held before (but
+     * sessions with a write-behind check-in in flight)
+     */
+    public void loadRecentSessions() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.removeIf(session -> !session.hasPending());
+            }
+        }
+        List<Object[]> rows = new ArrayList<>(checkinRepository.findActiveSessionRows());
+        rows.addAll(checkinRepository.findSessionRowsCheckedOutSince(cooldownStart()));
+        install(groupByUser(rows));
+    }
+
+    /**
+     * Session of a user as seen for a check-in at venueId, loading it first if
+     * needed, null if there is no such user
+     */
+    public Lookup lookup(long userId, long venueId) {
+        Lookup lookup = find(userId, venueId);
+        if (lookup == null) {
+            load(List.of(userId));
+            lookup = find(userId, venueId);
+        }
+        return lookup;
+    }
+
+    private Lookup find(long userId, long venueId) {
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            Session session = stripe.get(userId);
+            return session == null ? null : session.lookup(venueId, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Load the users that aren't in the table yet, one query for all of them
+     * (batch check-in calls this before looking up each user). Ids that aren't
+     * users are skipped.
+     */
+    public void load(Collection<Long> userIds) {
+        List<Long> missing = new ArrayList<>();
+        for (Long userId : userIds) {
+            Stripe stripe = stripeFor(userId);
+            synchronized (stripe) {
+                if (stripe.get(userId) == null) {
+                    missing.add(userId);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            install(groupByUser(checkinRepository.findSessionRowsByUserIds(missing, cooldownStart())));
+        }
+    }
+
+    public void checkedIn(long userId, long checkinId, long venueId) {
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            Session session = stripe.get(userId);
+            if (session != null) {
+                session.activeCheckinId = checkinId;
+                session.activeVenueId = venueId;
+            }
+        }
+    }
+
+    //the write-behind check-in at venueId got its row, unless a later check-in already replaced it
+    public void resolvePending(long userId, long venueId, long checkinId) {
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            Session session = stripe.get(userId);
+            if (session != null && session.activeCheckinId == PENDING && session.activeVenueId == venueId) {
+                session.activeCheckinId = checkinId;
+            }
+        }
+    }
+
+    public void checkedOut(long userId, long checkinId, long venueId, long checkoutMillis) {
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            Session session = stripe.get(userId);
+            if (session != null) {
+                if (session.activeCheckinId == checkinId) {
+                    session.activeCheckinId = 0;
+                    session.activeVenueId = 0;
+                }
+                session.addCheckout(checkinId, venueId, checkoutMillis);
+            }
+        }
+    }
+
+    //checkin deleted: it neither counts as open nor starts a cooldown anymore
+    public void removed(long userId, long checkinId) {
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            Session session = stripe.get(userId);
+            if (session != null) {
+                if (session.activeCheckinId == checkinId) {
+                    session.activeCheckinId = 0;
+                    session.activeVenueId = 0;
+                }
+                session.removeCheckout(checkinId);
+            }
+        }
+    }
+
+    /**
+     * Drop the sessions of these users and load them again from the database,
+     * one query for all of them. Sessions with a write-behind check-in in flight
+     * are kept: what's pending isn't in the database yet.
+     */
+    public void reload(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            Stripe stripe = stripeFor(userId);
+            synchronized (stripe) {
+                Session session = stripe.get(userId);
+                if (session != null && !session.hasPending()) {
+                    stripe.remove(userId);
+                }
+            }
+        }
+        load(userIds);
+    }
+
+    //forget a user, the next lookup reloads them from the database
+    public void evict(long userId) {
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            stripe.remove(userId);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Put sessions built from checkin rows ([userId, id, venueId, checkoutTime],
+     * grouped by user) into the table, a row without a checkin id just makes the
+     * user's session exist. Users that got in since the rows were read are left
+     * alone, their session is already newer.
+     */
+    private void install(Map<Long, List<Object[]>> byUser) {
+        for (Map.Entry<Long, List<Object[]>> user : byUser.entrySet()) {
+            long userId = user.getKey();
+            Session session = new Session();
+            for (Object[] row : user.getValue()) {
+                if (row[1] == null) {
+                    continue; //user without checkins in the window
+                }
+                long checkinId = ((Number) row[1]).longValue();
+                long venueId = ((Number) row[2]).longValue();
+                if (row[3] == null) {
+                    session.activeCheckinId = checkinId;
+                    session.activeVenueId = venueId;
+                } else {
+                    session.addCheckout(checkinId, venueId, toMillis((LocalDateTime) row[3]));
+                }
+            }
+            Stripe stripe = stripeFor(userId);
+            synchronized (stripe) {
+                if (stripe.get(userId) == null) {
+                    stripe.put(userId, session);
+                }
+            }
+        }
+    }
+
+    private static Map<Long, List<Object[]>> groupByUser(List<Object[]> rows) {
+        Map<Long, List<Object[]>> byUser = new HashMap<>();
+        for (Object[] row : rows) {
+            byUser.computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>()).add(row);
+        }
+        return byUser;
+    }
+
+    private static LocalDateTime cooldownStart() {
+        return LocalDateTime.now().minusMinutes(CheckinService.COOLDOWN_MINUTES);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private Stripe stripeFor(long userId) {
+        return stripes[(int) (mix(userId) >>> 58)]; //top 6 bits, the table slot uses the low ones
+    }
+
+    /**
+     * One user's session, only touched while holding its stripe's monitor
+     */
+    private static final class Session {
+        long activeCheckinId;
+        long activeVenueId;
+        //checkouts inside the cooldown window as [checkinId, venueId, checkoutMillis] triples
+        long[] checkouts = NO_CHECKOUTS;
+        int checkoutCount;
+
+        Lookup lookup(long venueId, long nowMillis) {
+            pruneCheckouts(nowMillis);
+            long lastCheckout = 0;
+            for (int i = 0; i < checkoutCount; i++) {
+                if (checkouts[i * 3 + 1] == venueId) {
+                    lastCheckout = Math.max(lastCheckout, checkouts[i * 3 + 2]);
+                }
+            }
+            return new Lookup(activeCheckinId, activeVenueId, lastCheckout);
+        }
+
+        //a write-behind check-in isn't written yet (the writer keeps a user's check-ins in order,
+        //so once the open one has its row the ones it closed have theirs too)
+        boolean hasPending() {
+            return activeCheckinId == PENDING;
+        }
+
+        void addCheckout(long checkinId, long venueId, long checkoutMillis) {
+            pruneCheckouts(System.currentTimeMillis());
+            if ((checkoutCount + 1) * 3 > checkouts.length) {
+                checkouts = Arrays.copyOf(checkouts, Math.max(6, checkouts.length * 2));
+            }
+            checkouts[checkoutCount * 3] = checkinId;
+            checkouts[checkoutCount * 3 + 1] = venueId;
+            checkouts[checkoutCount * 3 + 2] = checkoutMillis;
+            checkoutCount++;
+        }
+
+        void removeCheckout(long checkinId) {
+            retainCheckouts(i -> checkouts[i * 3] != checkinId);
+        }
+
+        //checkouts older than the cooldown can't block anything anymore
+        private void pruneCheckouts(long nowMillis) {
+            long cutoff = nowMillis - COOLDOWN_MILLIS;
+            retainCheckouts(i -> checkouts[i * 3 + 2] > cutoff);
+        }
+
+        private void retainCheckouts(IntPredicate keep) {
+            int kept = 0;
+            for (int i = 0; i < checkoutCount; i++) {
+                if (keep.test(i)) {
+                    System.arraycopy(checkouts, i * 3, checkouts, kept * 3, 3);
+                    kept++;
+                }
+            }
+            checkoutCount = kept;
+        }
+    }
+
+    /**
+     * Open addressing map from user id to session with linear probing.
+     * User ids are positive, 0 marks a free slot.
+     */
+    private static final class Stripe {
+        long[] keys = new long[INITIAL_CAPACITY];
+        Session[] values = new Session[INITIAL_CAPACITY];
+        int size;
+
+        Session get(long key) {
+            int mask = keys.length - 1;
+            for (int i = (int) mix(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(long key, Session value) {
+            if ((size + 1) * 3 > keys.length * 2) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = (int) mix(key) & mask;
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = (int) mix(key) & mask;
+            while (keys[i] != key) {
+                if (keys[i] == 0) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            //shift later entries of the probe run back so lookups don't stop at the hole
+            int hole = i;
+            for (int j = (hole + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                int home = (int) mix(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = 0;
+            values[hole] = null;
+            size--;
+        }
+
+        void removeIf(Predicate<Session> drop) {
+            for (int i = 0; i < keys.length; i++) {
+                //remove() shifts a later entry into slot i, look at it again
+                while (keys[i] != 0 && drop.test(values[i])) {
+                    remove(keys[i]);
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Session[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Session[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
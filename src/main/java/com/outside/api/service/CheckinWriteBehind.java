@@ -0,0 +1,277 @@
+package com.outside.api.service;
+
+import com.outside.api.dto.CheckinBatchResult;
+import com.outside.api.dto.CheckinDTO;
+import com.outside.api.dto.PendingCheckin;
+import com.outside.api.model.Venue;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind check-in ingestion, on with outside.checkin.ingest.mode=write-behind
+ *
+ * A check-in is accepted by CheckinService.admitCheckin (rules from the session
+ * table, no database round trip) and put in a bounded ring buffer. One writer
+ * thread takes what is in the buffer and writes it with CheckinService.writeAdmitted
+ * in a single transaction. After the first check-in it waits up to flushIntervalMs
+ * for more, so a burst shares one commit instead of paying one commit each.
+ *
+ * outside.checkin.ingest.durability picks when the caller gets its answer:
+ * - flush (default): once the batch holding the check-in has committed, with the
+ *   saved checkin. Nothing acknowledged is lost.
+ * - enqueue: as soon as the check-in is in the buffer, without an id. Faster, but
+ *   a crash loses whatever was still buffered, and a check-in that fails to write
+ *   is only logged.
+ *
+ * When the buffer is full, submit waits up to enqueueTimeoutMs and then refuses
+ * with RejectedExecutionException, so a slow database pushes back on clients
+ * instead of growing memory. On shutdown new check-ins are refused and the
+ * writer drains the buffer before the database goes away.
+ *
+ * In the default sync mode the writer never starts and checkinUser writes every
+ * check-in in its own transaction.
+ */
+@Component
+public class CheckinWriteBehind {
+    private static final Logger log = LoggerFactory.getLogger(CheckinWriteBehind.class);
+
+    @Autowired
+    private CheckinService checkinService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private CheckinSessionRegistry sessionRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final boolean enabled;
+    private final boolean ackOnEnqueue;
+    private final long flushIntervalNanos;
+    private final int maxBatch;
+    private final long enqueueTimeoutMillis;
+    private final long drainTimeoutMillis;
+    private final BlockingQueue<Entry> buffer;
+    private final Thread writer;
+
+    private volatile boolean accepting = false;
+    private volatile boolean running = false;
+
+    //one accepted check-in, saved is completed by the writer (flush durability only)
+    private record Entry(PendingCheckin checkin, CompletableFuture<CheckinDTO> saved) {}
+
+    public CheckinWriteBehind(@Value("${outside.checkin.ingest.mode:sync}") String mode,
+                              @Value("${outside.checkin.ingest.durability:flush}") String durability,
+                              @Value("${outside.checkin.ingest.buffer-size:8192}") int bufferSize,
+                              @Value("${outside.checkin.ingest.flush-interval-ms:5}") long flushIntervalMs,
+                              @Value("${outside.checkin.ingest.max-batch:500}") int maxBatch,
+                              @Value("${outside.checkin.ingest.enqueue-timeout-ms:1000}") long enqueueTimeoutMillis,
+                              @Value("${outside.checkin.ingest.drain-timeout-ms:30000}") long drainTimeoutMillis) {
+        if (!mode.equals("sync") && !mode.equals("write-behind")) {
+            throw new IllegalArgumentException("outside.checkin.ingest.mode must be sync or write-behind, got " + mode);
+        }
+        if (!durability.equals("flush") && !durability.equals("enqueue")) {
+            throw new IllegalArgumentException("outside.checkin.ingest.durability must be flush or enqueue, got " + durability);
+        }
+        this.enabled = mode.equals("write-behind");
+        this.ackOnEnqueue = durability.equals("enqueue");
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.maxBatch = maxBatch;
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.writer = new Thread(this::writeLoop, "checkin-writer");
+        this.writer.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("outside.checkin.ingest.buffer", buffer, BlockingQueue::size).register(meterRegistry);
+        running = true;
+        accepting = true;
+        writer.start();
+    }
+
+    /**
+     * Stop taking check-ins and wait for the writer to write out the buffer
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        accepting = false;
+        running = false;
+        writer.join(drainTimeoutMillis);
+        if (writer.isAlive()) {
+            log.warn("Write-behind writer still busy after {} ms, {} check-ins left in the buffer",
+                    drainTimeoutMillis, buffer.size());
+            return;
+        }
+        //a submit that slipped in while the writer was finishing, don't leave its caller waiting
+        List<Entry> leftover = new ArrayList<>();
+        buffer.drainTo(leftover);
+        for (Entry entry : leftover) {
+            fail(entry, new RejectedExecutionException("Check-ins are not being accepted right now"));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Check a user in through the buffer
+     *
+     * @return the saved checkin (flush durability), or the accepted check-in
+     * without id, username and createdAt (enqueue durability)
+     * @throws RuntimeException same rules as CheckinService.checkinUser, or the
+     * write failed (flush durability)
+     * @throws RejectedExecutionException if the buffer stayed full or the app is shutting down
+     */
+    public CheckinDTO submit(Long userId, Long venueId) {
+        if (!accepting) {
+            throw new RejectedExecutionException("Check-ins are not being accepted right now");
+        }
+        CompletableFuture<CheckinDTO> saved = ackOnEnqueue ? null : new CompletableFuture<>();
+        PendingCheckin pending = checkinService.admitCheckin(userId, venueId, checkin -> enqueue(new Entry(checkin, saved)));
+        if (saved == null) {
+            String venueName = venueService.getVenuebyId(venueId).map(Venue::getName).orElse(null);
+            return new CheckinDTO(null, userId, null, venueId, venueName, pending.checkinTime(), null, null);
+        }
+        try {
+            return saved.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        try {
+            if (!buffer.offer(entry, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Check-in buffer is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the check-in buffer");
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(maxBatch);
+        while (running || !buffer.isEmpty()) {
+            try {
+                Entry first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                //group commit: whatever shows up within the flush interval goes into the same transaction
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < maxBatch) {
+                    buffer.drainTo(batch, maxBatch - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || wait <= 0) {
+                        break;
+                    }
+                    Entry next = buffer.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                //nothing interrupts the writer (stop() lets the loop run dry), write what we have
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    flush(batch);
+                } catch (RuntimeException e) {
+                    log.error("Write-behind writer failed on a batch of {} check-ins", batch.size(), e);
+                    for (Entry entry : batch) {
+                        fail(entry, new RuntimeException("Check-in could not be saved"));
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Entry> batch) {
+        List<PendingCheckin> checkins = batch.stream().map(Entry::checkin).toList();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<CheckinBatchResult> results;
+        try {
+            results = checkinService.writeAdmitted(checkins);
+        } catch (RuntimeException e) {
+            //one bad check-in (e.g. its venue was deleted meanwhile) shouldn't sink the others
+            log.warn("Write-behind batch of {} check-ins failed, writing them one by one", batch.size(), e);
+            results = new ArrayList<>(batch.size());
+            for (int i = 0; i < checkins.size(); i++) {
+                results.add(writeOne(i, checkins.get(i)));
+            }
+        }
+        sample.stop(meterRegistry.timer("outside.checkin.ingest.flush"));
+        DistributionSummary.builder("outside.checkin.ingest.flush.size")
+                .publishPercentileHistogram()
+                .maximumExpectedValue((double) maxBatch)
+                .register(meterRegistry)
+                .record(batch.size());
+
+        for (int i = 0; i < batch.size(); i++) {
+            Entry entry = batch.get(i);
+            CheckinBatchResult result = results.get(i);
+            if (result.succeeded()) {
+                if (entry.saved() != null) {
+                    entry.saved().complete(result.checkin());
+                }
+                continue;
+            }
+            fail(entry, new RuntimeException(result.error()));
+        }
+    }
+
+    //a check-in that won't be written: its session still shows it pending, so reload that from the database
+    private void fail(Entry entry, RuntimeException reason) {
+        sessionRegistry.evict(entry.checkin().userId());
+        if (entry.saved() != null) {
+            entry.saved().completeExceptionally(reason);
+        } else {
+            log.warn("Dropped write-behind check-in of user {} at venue {}: {}",
+                    entry.checkin().userId(), entry.checkin().venueId(), reason.getMessage());
+        }
+    }
+
+    private CheckinBatchResult writeOne(int index, PendingCheckin checkin) {
+        try {
+            CheckinBatchResult result = checkinService.writeAdmitted(List.of(checkin)).get(0);
+            return result.succeeded() ? CheckinBatchResult.ok(index, result.checkin())
+                    : CheckinBatchResult.failed(index, result.error());
+        } catch (RuntimeException e) {
+            return CheckinBatchResult.failed(index, "Check-in could not be saved");
+        }
+    }
+}
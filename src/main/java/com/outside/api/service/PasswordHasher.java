@@ -0,0 +1,92 @@
+package com.outside.api.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs password hashing on its own small, bounded thread pool
+ *
+ * Password hashes burn ~100ms of CPU per call on purpose. Doing that on Tomcat request
+ * threads during a login storm starves every other endpoint, so register/login
+ * hand the work to this pool instead. The pool has a fixed number of threads
+ * and a bounded queue: once both are full new work is rejected right away
+ * (RejectedExecutionException) and the controller answers 503 instead of
+ * piling up requests.
+ *
+ * The time each hash takes on the pool is recorded as outside.auth.hash
+ * (operation=encode|matches), queue wait not included.
+ */
+@Component
+public class PasswordHasher {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ThreadPoolExecutor executor;
+
+    public PasswordHasher(@Value("${outside.auth.hash-threads:0}") int threads,
+                          @Value("${outside.auth.hash-queue-size:64}") int queueSize) {
+        //default to half the cores so hashing can never take the whole machine
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Hash a raw password on the hashing pool
+     *
+     * @throws RejectedExecutionException if the pool and its queue are full
+     */
+    public CompletableFuture<String> encode(String rawPassword) {
+        return CompletableFuture.supplyAsync(() -> meterRegistry.timer("outside.auth.hash", "operation", "encode")
+                .record(() -> passwordEncoder.encode(rawPassword)), executor);
+    }
+
+    /**
+     * Check a raw password against a stored hash on the hashing pool
+     *
+     * @throws RejectedExecutionException if the pool and its queue are full
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String passwordHash) {
+        return CompletableFuture.supplyAsync(() -> meterRegistry.timer("outside.auth.hash", "operation", "matches")
+                .record(() -> passwordEncoder.matches(rawPassword, passwordHash)), executor);
+    }
+
+    /**
+     * True if a stored hash was made with an old algorithm or cost and should be redone
+     */
+    public boolean needsRehash(String passwordHash) {
+        return passwordEncoder.upgradeEncoding(passwordHash);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -2,21 +2,42 @@ package com.outside.api.service;
 
 import com.outside.api.model.User;
 import com.outside.api.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
+@Timed("outside.service")
 public class UserService {
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
     
     @Autowired
     private UserRepository userRepository;
     
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
+
+    //saves after a hash run here (Spring's general task pool), the hashing pool only hashes
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor saveExecutor;
     
-    public User registerUser(String email, String username, String password) {
+    /**
+     * Register a new user, hashing the password on the PasswordHasher pool
+     * The user is saved on another executor so a slow database never holds up hashing threads.
+     *
+     * @return future completed with the saved user once the hash is done
+     * @throws RuntimeException if the email or username is taken
+     * @throws java.util.concurrent.RejectedExecutionException if the hashing pool is saturated
+     */
+    public CompletableFuture<User> registerUser(String email, String username, String password) {
         if (userRepository.findByEmail(email).isPresent()) {
             throw new RuntimeException("Email already in use");
         }
@@ -25,26 +46,55 @@ public class UserService {
             throw new RuntimeException("Username already in use");
         }
         
-        User user = new User();
-        user.setEmail(email);
-        user.setUsername(username);
-        
-        String hashedPassword = passwordEncoder.encode(password);
-        user.setPasswordHash(hashedPassword);
-        
-        return userRepository.save(user);
+        return passwordHasher.encode(password).thenApplyAsync(hashedPassword -> {
+            User user = new User();
+            user.setEmail(email);
+            user.setUsername(username);
+            user.setPasswordHash(hashedPassword);
+            return userRepository.save(user);
+        }, saveExecutor);
     }
     
-    public Optional<User> authenticateUser(String email, String password) {
+    /**
+     * Check credentials, the password check runs on the PasswordHasher pool
+     * If the stored hash is on an outdated algorithm/cost it gets rehashed and
+     * saved in the background after a successful login.
+     *
+     * @return future completed with the user if the credentials are valid, empty otherwise
+     * @throws java.util.concurrent.RejectedExecutionException if the hashing pool is saturated
+     */
+    public CompletableFuture<Optional<User>> authenticateUser(String email, String password) {
         Optional<User> user = userRepository.findByEmail(email);
         
-        if (user.isPresent()) {
-            if (passwordEncoder.matches(password, user.get().getPasswordHash())) {
-                return user;
-            }
+        if (user.isEmpty()) {
+            return CompletableFuture.completedFuture(Optional.empty());
         }
         
-        return Optional.empty();
+        String storedHash = user.get().getPasswordHash();
+        return passwordHasher.matches(password, storedHash)
+            .thenApply(matches -> {
+                if (!matches) {
+                    return Optional.empty();
+                }
+                if (passwordHasher.needsRehash(storedHash)) {
+                    rehashInBackground(user.get().getId(), storedHash, password);
+                }
+                return user;
+            });
+    }
+
+    //best effort: if the pool is busy or the save fails we just try again next login
+    private void rehashInBackground(Long userId, String oldHash, String password) {
+        try {
+            passwordHasher.encode(password)
+                .thenAcceptAsync(newHash -> userRepository.replacePasswordHash(userId, oldHash, newHash), saveExecutor)
+                .exceptionally(e -> {
+                    log.warn("Could not rehash password for user {}", userId, e);
+                    return null;
+                });
+        } catch (RejectedExecutionException e) {
+            log.debug("Hashing pool busy, skipping rehash for user {}", userId);
+        }
     }
     
     public Optional<User> getUserById(Long id) {
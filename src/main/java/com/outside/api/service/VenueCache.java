@@ -0,0 +1,137 @@
+package com.outside.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.outside.api.model.Venue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for venues, by id and by category
+ *
+ * Both caches are bounded by size and expire entries after a TTL, so a write
+ * that skips VenueService is still picked up eventually. VenueService
+ * invalidates explicitly on create/update/delete, so normal edits show up
+ * right away.
+ *
+ * Venue is a mutable entity, so the cache keeps its own copies and hands out
+ * fresh ones (category lists unmodifiable): a caller can set fields or attach
+ * a venue to a new checkin without touching what other threads read.
+ */
+@Component
+public class VenueCache {
+
+    private final Cache<Long, Venue> byId;
+    private final Cache<String, List<Venue>> byCategory;
+
+    public VenueCache(@Value("${outside.venue-cache.max-size:10000}") long maxSize,
+                      @Value("${outside.venue-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        //category lists are much bigger than single venues, keep fewer of them
+        this.byCategory = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxSize / 100))
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Copy of the cached venue, or of loader's result on a miss (misses that find nothing aren't cached)
+     */
+    public Venue getById(Long id, Function<Long, Venue> loader) {
+        Venue venue = byId.get(id, key -> copyOf(loader.apply(key)));
+        return venue == null ? null : copyOf(venue);
+    }
+
+    /**
+     * Unmodifiable list of copies of the cached venues, loading them on a miss
+     */
+    public List<Venue> getByCategory(String category, Function<String, List<Venue>> loader) {
+        return copiesOf(byCategory.get(category, key -> copiesOf(loader.apply(key))));
+    }
+
+    /**
+     * Drop a venue after it was created, updated or deleted
+     * Category lists are all dropped since the venue may have moved between categories.
+     */
+    public void invalidate(Long venueId) {
+        byId.invalidate(venueId);
+        byCategory.invalidateAll();
+    }
+
+    /**
+     * Drop only the category lists, after venues were added in bulk (new ids were never cached)
+     */
+    public void invalidateCategories() {
+        byCategory.invalidateAll();
+    }
+
+    public void invalidateAll() {
+        byId.invalidateAll();
+        byCategory.invalidateAll();
+    }
+
+    /**
+     * Hit/miss/eviction numbers for both caches, for sizing
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        stats.put("byId", describe(byId.stats(), byId.estimatedSize()));
+        stats.put("byCategory", describe(byCategory.stats(), byCategory.estimatedSize()));
+        return stats;
+    }
+
+    private static List<Venue> copiesOf(List<Venue> venues) {
+        List<Venue> copies = new ArrayList<>(venues.size());
+        for (Venue venue : venues) {
+            copies.add(copyOf(venue));
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    //detached copy, never the instance a persistence context or another caller holds
+    private static Venue copyOf(Venue venue) {
+        if (venue == null) {
+            return null;
+        }
+        Venue copy = new Venue();
+        copy.setId(venue.getId());
+        copy.setName(venue.getName());
+        copy.setAddress(venue.getAddress());
+        copy.setLatitude(venue.getLatitude());
+        copy.setLongitude(venue.getLongitude());
+        copy.setCategory(venue.getCategory());
+        copy.setPhoneNumber(venue.getPhoneNumber());
+        copy.setWebsite(venue.getWebsite());
+        copy.setAgeRestriction(venue.getAgeRestriction());
+        copy.setCoverCharge(venue.getCoverCharge());
+        copy.setDescription(venue.getDescription());
+        copy.setPhotoUrl(venue.getPhotoUrl());
+        copy.setCreatedAt(venue.getCreatedAt());
+        copy.setUpdatedAt(venue.getUpdatedAt());
+        return copy;
+    }
+
+    private static Map<String, Object> describe(CacheStats stats, long size) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", size);
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package com.outside.api.service;
+
+import com.outside.api.dto.VenueImportReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Command line venue import: imports the given files, prints progress and exits
+ *
+ *   java -jar app.jar --spring.main.web-application-type=none --import-venues=chicago.csv
+ *
+ * --import-venues can be repeated. The format comes from the file extension
+ * (.csv, .ndjson, .jsonl) unless --import-format=csv|ndjson is given. Exits with
+ * 1 if any row failed. Without --import-venues the app starts as usual.
+ */
+@Component
+public class VenueImportRunner implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(VenueImportRunner.class);
+
+    @Autowired
+    private VenueImportService venueImportService;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> files = args.getOptionValues("import-venues");
+        if (files == null) {
+            return;
+        }
+        List<String> formats = args.getOptionValues("import-format");
+
+        int exitCode = 0;
+        for (String file : files) {
+            try {
+                VenueImportService.Format format = formats == null
+                        ? VenueImportService.Format.fromFileName(file)
+                        : VenueImportService.Format.valueOf(formats.get(0).toUpperCase());
+                VenueImportReport report;
+                try (Reader reader = Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+                    report = venueImportService.importVenues(reader, format, progress ->
+                            log.info("{}: {} rows read, {} imported, {} duplicates, {} failed",
+                                    file, progress.rows(), progress.imported(), progress.duplicates(), progress.failed()));
+                }
+                for (VenueImportReport.RowError error : report.errors()) {
+                    log.warn("{} line {}: {}", file, error.line(), error.message());
+                }
+                if (report.failed() > report.errors().size()) {
+                    log.warn("{}: {} more failed rows not listed", file, report.failed() - report.errors().size());
+                }
+                log.info("{}: done, {} imported, {} duplicates, {} failed in {} ms",
+                        file, report.imported(), report.duplicates(), report.failed(), report.millis());
+                if (report.failed() > 0) {
+                    exitCode = 1;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("{}: import failed", file, e);
+                exitCode = 1;
+            }
+        }
+
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
@@ -0,0 +1,472 @@
+package com.outside.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outside.api.dto.VenueImportReport;
+import com.outside.api.model.Venue;
+import com.outside.api.repository.VenueRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Bulk venue import from CSV or NDJSON, used by POST /api/venues/import and
+ * VenueImportRunner
+ *
+ * The input is read one row at a time, so file size doesn't matter. Every row is
+ * validated and checked for duplicates (same name and coordinates as a venue
+ * already in the database or an earlier row). Good rows are inserted in
+ * transactions of outside.import.batch-size rows each. Venue ids come from a
+ * sequence, so Hibernate sends the inserts as JDBC batches instead of one round
+ * trip per venue. A bad row is reported and skipped, it never stops the import.
+ *
+ * CSV needs a header row. Columns (and NDJSON keys) are Venue property names,
+ * camelCase or snake_case: name, latitude and longitude are required, address,
+ * category, phoneNumber, website, ageRestriction, coverCharge, description and
+ * photoUrl are optional.
+ */
+@Service
+@Timed("outside.service")
+public class VenueImportService {
+    private static final Logger log = LoggerFactory.getLogger(VenueImportService.class);
+
+    //rows per JDBC batch inside a transaction
+    private static final int JDBC_BATCH_SIZE = 100;
+    //failed rows listed in the report, the count keeps going past this
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    //normalized column name (lowercase, no _ - or spaces) -> Venue property
+    private static final Map<String, String> COLUMNS = new HashMap<>();
+    static {
+        for (String property : List.of("name", "address", "latitude", "longitude", "category", "phoneNumber",
+                "website", "ageRestriction", "coverCharge", "description", "photoUrl")) {
+            COLUMNS.put(normalizeColumn(property), property);
+        }
+    }
+
+    public enum Format {
+        CSV, NDJSON;
+
+        /**
+         * Format for a Content-Type header
+         *
+         * @throws IllegalArgumentException if it isn't text/csv or application/x-ndjson
+         */
+        public static Format fromContentType(String contentType) {
+            String type = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+            return switch (type) {
+                case "text/csv" -> CSV;
+                case "application/x-ndjson", "application/jsonl" -> NDJSON;
+                default -> throw new IllegalArgumentException(
+                        "Content-Type must be text/csv or application/x-ndjson");
+            };
+        }
+
+        /**
+         * Format for a file name (.csv, .ndjson or .jsonl)
+         *
+         * @throws IllegalArgumentException on any other extension
+         */
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Can't tell the format of " + fileName + " (.csv, .ndjson or .jsonl)");
+        }
+    }
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //rows per transaction, also how often progress is reported
+    @Value("${outside.import.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * A row as read from the input: the line it starts on and its fields, or
+     * why it couldn't be read at all
+     */
+    private record Row(long line, Map<String, Object> fields, String error) {}
+
+    private interface RowReader {
+        //next row, null at the end of the input
+        Row next() throws IOException;
+    }
+
+    /**
+     * Running totals while an import is going
+     */
+    private static class Tally {
+        long rows;
+        long imported;
+        long duplicates;
+        long failed;
+        final List<VenueImportReport.RowError> errors = new ArrayList<>();
+        final long startNanos = System.nanoTime();
+
+        void fail(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new VenueImportReport.RowError(line, message));
+            }
+        }
+
+        VenueImportReport report() {
+            return new VenueImportReport(rows, imported, duplicates, failed, List.copyOf(errors),
+                    (System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    /**
+     * Import every venue in the input
+     *
+     * @param input    CSV or NDJSON text, read to the end but not closed
+     * @param format   how to parse it
+     * @param progress called with the totals so far after every committed batch
+     * @return final totals
+     * @throws IllegalArgumentException if the CSV header is missing or has an unknown column
+     * @throws UncheckedIOException if reading the input fails
+     */
+    public VenueImportReport importVenues(Reader input, Format format, Consumer<VenueImportReport> progress) {
+        BufferedReader reader = input instanceof BufferedReader buffered ? buffered : new BufferedReader(input);
+        Tally tally = new Tally();
+        try {
+            RowReader rows = format == Format.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader, objectMapper);
+            Set<String> seen = existingVenueKeys();
+
+            List<Venue> batch = new ArrayList<>(batchSize);
+            List<Long> batchLines = new ArrayList<>(batchSize);
+            Row row;
+            while ((row = rows.next()) != null) {
+                tally.rows++;
+                if (row.error() != null) {
+                    tally.fail(row.line(), row.error());
+                    continue;
+                }
+                Venue venue;
+                try {
+                    venue = toVenue(row.fields());
+                } catch (IllegalArgumentException e) {
+                    tally.fail(row.line(), e.getMessage());
+                    continue;
+                }
+                if (!seen.add(venueKey(venue.getName(), venue.getLatitude(), venue.getLongitude()))) {
+                    tally.duplicates++;
+                    continue;
+                }
+                batch.add(venue);
+                batchLines.add(row.line());
+                if (batch.size() >= batchSize) {
+                    writeBatch(batch, batchLines, tally);
+                    progress.accept(tally.report());
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch, batchLines, tally);
+                progress.accept(tally.report());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        VenueImportReport report = tally.report();
+        log.info("Venue import: {} rows, {} imported, {} duplicates, {} failed in {} ms",
+                report.rows(), report.imported(), report.duplicates(), report.failed(), report.millis());
+        return report;
+    }
+
+    /**
+     * Insert one batch in its own transaction, then add it to the in-memory indexes
+     * If the database rejects the batch all of its rows are reported as failed.
+     */
+    private void writeBatch(List<Venue> batch, List<Long> lines, Tally tally) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(JDBC_BATCH_SIZE);
+                for (Venue venue : batch) {
+                    entityManager.persist(venue);
+                }
+                entityManager.flush();
+                //nothing reads these back, don't let the persistence context grow
+                entityManager.clear();
+            });
+            venueService.indexVenues(batch);
+            tally.imported += batch.size();
+        } catch (RuntimeException e) {
+            log.warn("Venue import batch starting at line {} failed", lines.get(0), e);
+            for (Long line : lines) {
+                tally.fail(line, "Batch insert failed: " + e.getMessage());
+            }
+        }
+        batch.clear();
+        lines.clear();
+    }
+
+    private Set<String> existingVenueKeys() {
+        Set<String> keys = new HashSet<>();
+        for (Object[] row : venueRepository.findAllNamesAndCoordinates()) {
+            keys.add(venueKey((String) row[0], (Double) row[1], (Double) row[2]));
+        }
+        return keys;
+    }
+
+    //same venue = same name (ignoring case) within ~1m (5 decimal places)
+    private static String venueKey(String name, double latitude, double longitude) {
+        return name.trim().toLowerCase(Locale.ROOT) + '|' + Math.round(latitude * 1e5) + '|' + Math.round(longitude * 1e5);
+    }
+
+    /**
+     * Build and validate a venue from one row's fields
+     *
+     * @throws IllegalArgumentException describing the first problem found
+     */
+    private static Venue toVenue(Map<String, Object> fields) {
+        Venue venue = new Venue();
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            String property = COLUMNS.get(normalizeColumn(field.getKey()));
+            if (property == null) {
+                throw new IllegalArgumentException("Unknown field: " + field.getKey());
+            }
+            Object value = field.getValue();
+            if (value == null || value instanceof String text && text.isBlank()) {
+                continue;
+            }
+            switch (property) {
+                case "name" -> venue.setName(text(property, value));
+                case "address" -> venue.setAddress(text(property, value));
+                case "latitude" -> venue.setLatitude(number(property, value, 90));
+                case "longitude" -> venue.setLongitude(number(property, value, 180));
+                case "category" -> venue.setCategory(text(property, value));
+                case "phoneNumber" -> venue.setPhoneNumber(text(property, value));
+                case "website" -> venue.setWebsite(text(property, value));
+                case "ageRestriction" -> venue.setAgeRestriction(ageRestriction(value));
+                case "coverCharge" -> venue.setCoverCharge(text(property, value));
+                case "description" -> venue.setDescription(value.toString().trim());
+                case "photoUrl" -> venue.setPhotoUrl(text(property, value));
+                default -> throw new IllegalStateException("Unmapped venue column " + property);
+            }
+        }
+        if (venue.getName() == null) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (venue.getLatitude() == null || venue.getLongitude() == null) {
+            throw new IllegalArgumentException("latitude and longitude are required");
+        }
+        return venue;
+    }
+
+    private static String text(String property, Object value) {
+        String text = value.toString().trim();
+        if (text.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException(property + " is longer than " + MAX_TEXT_LENGTH + " characters");
+        }
+        return text;
+    }
+
+    //a coordinate between -limit and limit
+    private static Double number(String property, Object value, double limit) {
+        double number;
+        try {
+            number = value instanceof Number n ? n.doubleValue() : Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(property + " is not a number: " + value);
+        }
+        if (!(number >= -limit && number <= limit)) {
+            throw new IllegalArgumentException(property + " must be between -" + (int) limit + " and " + (int) limit);
+        }
+        return number;
+    }
+
+    private static Integer ageRestriction(Object value) {
+        try {
+            int age = value instanceof Number n ? n.intValue() : Integer.parseInt(value.toString().trim());
+            if (age < 0) {
+                throw new IllegalArgumentException("ageRestriction must not be negative");
+            }
+            return age;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("ageRestriction is not a whole number: " + value);
+        }
+    }
+
+    private static String normalizeColumn(String column) {
+        return column.replaceAll("[_\\-\\s]", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * CSV with a header row (RFC 4180: quoted fields may hold commas, "" for a
+     * quote and line breaks)
+     */
+    private static class CsvRowReader implements RowReader {
+        private final BufferedReader in;
+        private final List<String> header;
+        private long line = 0;
+
+        CsvRowReader(BufferedReader in) throws IOException {
+            this.in = in;
+            List<String> columns = readRecord();
+            if (columns == null) {
+                throw new IllegalArgumentException("CSV input is empty, expected a header row");
+            }
+            header = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                String name = column.trim();
+                //a UTF-8 byte order mark from spreadsheet exports
+                if (name.startsWith("\uFEFF")) {
+                    name = name.substring(1);
+                }
+                if (!COLUMNS.containsKey(normalizeColumn(name))) {
+                    throw new IllegalArgumentException("Unknown venue column: " + name);
+                }
+                header.add(name);
+            }
+        }
+
+        @Override
+        public Row next() throws IOException {
+            List<String> values;
+            long start;
+            do {
+                start = line + 1;
+                values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+            } while (values.size() == 1 && values.get(0).isBlank()); //skip empty lines
+
+            if (values.size() != header.size()) {
+                return new Row(start, null, "Expected " + header.size() + " columns, found " + values.size());
+            }
+            Map<String, Object> fields = new LinkedHashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                fields.put(header.get(i), values.get(i));
+            }
+            return new Row(start, fields, null);
+        }
+
+        //one record, which can span several lines when a quoted field has line breaks
+        private List<String> readRecord() throws IOException {
+            String text = in.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == text.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    //line break inside a quoted field
+                    String more = in.readLine();
+                    if (more == null) {
+                        break;
+                    }
+                    line++;
+                    value.append('\n');
+                    text = more;
+                    i = 0;
+                    continue;
+                }
+                char c = text.charAt(i++);
+                if (quoted) {
+                    if (c == '"' && i < text.length() && text.charAt(i) == '"') {
+                        value.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        value.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else {
+                    value.append(c);
+                }
+            }
+            values.add(value.toString());
+            return values;
+        }
+    }
+
+    /**
+     * One JSON object per line, a line that doesn't parse is reported on its own
+     */
+    private static class NdjsonRowReader implements RowReader {
+        private final BufferedReader in;
+        private final ObjectMapper objectMapper;
+        private long line = 0;
+
+        NdjsonRowReader(BufferedReader in, ObjectMapper objectMapper) {
+            this.in = in;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Row next() throws IOException {
+            String text;
+            do {
+                text = in.readLine();
+                if (text == null) {
+                    return null;
+                }
+                line++;
+            } while (text.isBlank());
+
+            try {
+                Object value = objectMapper.readValue(text, Object.class);
+                if (!(value instanceof Map)) {
+                    return new Row(line, null, "Expected a JSON object");
+                }
+                return new Row(line, (Map<String, Object>) value, null);
+            } catch (JsonProcessingException e) {
+                return new Row(line, null, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.outside.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.outside.api.dto.VenueLiveDelta;
+import com.outside.api.dto.VenueLiveSnapshot;
+import com.outside.api.model.CheckinEvent;
+import com.outside.api.repository.CheckinRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events feed of who is at a venue
+ *
+ * A new subscriber gets one "snapshot" event (the active checkins) and after
+ * that only "delta" events. Checkin events from CheckinEventBus are collected per
+ * venue and one flush thread sends them every flushMillis, so a burst of
+ * check-ins becomes one message per venue, serialized once for all of its
+ * subscribers.
+ *
+ * The actual socket writes happen on a small sender pool. Every subscriber has a
+ * bounded outbox, a client that can't keep up fills it and gets disconnected
+ * instead of holding up everyone else. The flush thread never touches an emitter:
+ * completing one waits for any write in progress on it, so cut off subscribers
+ * are completed on a separate closer pool. A single write that takes longer than
+ * writeTimeoutMillis gets its subscriber cut off too, and the sender pool grows
+ * by a thread until that write returns, so a stalled client can't take sending
+ * capacity away from the others. Clients should treat joined/left as
+ * idempotent by checkinId: a checkin can show up in the snapshot and again in
+ * the first delta.
+ */
+@Component
+public class VenueLiveFeed {
+    private static final Logger log = LoggerFactory.getLogger(VenueLiveFeed.class);
+
+    //a keepalive comment goes out on idle feeds this often so dead clients get noticed
+    private static final long HEARTBEAT_MILLIS = 15_000;
+
+    @Autowired
+    private CheckinEventBus eventBus;
+
+    @Autowired
+    private VenueOccupancyTracker occupancyTracker;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final long flushMillis;
+    private final long timeoutMillis;
+    private final int outboxSize;
+    private final long writeTimeoutNanos;
+    private final ScheduledExecutorService flusher;
+    private final ThreadPoolExecutor senders;
+    private final ExecutorService closer;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    //subscribers with a write in progress, cut off ones included
+    private final Set<Subscriber> writing = ConcurrentHashMap.newKeySet();
+    //venueId -> changes since the last flush, a delta is only changed inside pending.compute
+    private final Map<Long, PendingDelta> pending = new ConcurrentHashMap<>();
+
+    private long lastHeartbeat = System.currentTimeMillis();
+
+    private static class PendingDelta {
+        final Map<Long, VenueLiveDelta.Arrival> joined = new LinkedHashMap<>();
+        final List<Long> left = new ArrayList<>();
+    }
+
+    private record Message(String name, String data) {}
+
+    private class Subscriber {
+        final Long venueId;
+        final SseEmitter emitter;
+        final BlockingQueue<Message> outbox = new ArrayBlockingQueue<>(outboxSize);
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean ready = false;
+        volatile boolean closed = false;
+        //nanoTime the write in progress started at, 0 while not writing (guarded by the subscriber)
+        long writingSince;
+        //the write in progress ran over writeTimeoutNanos and got a replacement sender thread
+        boolean writeTimedOut;
+
+        Subscriber(Long venueId, SseEmitter emitter) {
+            this.venueId = venueId;
+            this.emitter = emitter;
+        }
+    }
+
+    public VenueLiveFeed(@Value("${outside.live.flush-ms:500}") long flushMillis,
+                         @Value("${outside.live.timeout-ms:1800000}") long timeoutMillis,
+                         @Value("${outside.live.outbox-size:32}") int outboxSize,
+                         @Value("${outside.live.send-threads:2}") int sendThreads,
+                         @Value("${outside.live.write-timeout-ms:10000}") long writeTimeoutMillis) {
+        this.flushMillis = flushMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.outboxSize = outboxSize;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "venue-live-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger count = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(sendThreads, sendThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "venue-live-send-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.closer = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "venue-live-close");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        eventBus.subscribe(this::onCheckinEvent);
+        flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        senders.shutdownNow();
+        closer.shutdownNow();
+        subscribers.values().forEach(set -> set.forEach(s -> s.emitter.complete()));
+    }
+
+    /**
+     * Open a live feed for a venue: sends the snapshot right away, deltas follow
+     * The caller checks the venue exists.
+     */
+    public SseEmitter subscribe(Long venueId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(venueId, emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        //register before reading the snapshot so no change falls in between,
+        //deltas queue up in the outbox until the snapshot is out
+        subscribers.computeIfAbsent(venueId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+
+        VenueLiveSnapshot snapshot = new VenueLiveSnapshot(venueId, occupancyTracker.getOccupancy(venueId),
+                checkinRepository.findActiveCheckinDTOsByVenueId(venueId));
+        try {
+            emitter.send(SseEmitter.event().name("snapshot").data(toJson(snapshot)));
+        } catch (IOException e) {
+            remove(subscriber);
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        subscriber.ready = true;
+        scheduleDrain(subscriber);
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Collect a checkin event into its venue's pending delta (runs on the bus thread)
+     */
+    public void onCheckinEvent(CheckinEvent event) {
+        if (!subscribers.containsKey(event.getVenueId())) {
+            return;
+        }
+        //changed only inside compute, so flush's remove() takes it either before or after this event, never during
+        pending.compute(event.getVenueId(), (id, delta) -> {
+            PendingDelta changed = delta == null ? new PendingDelta() : delta;
+            if (event.getType() == CheckinEvent.Type.CHECKED_IN) {
+                changed.joined.put(event.getCheckinId(), new VenueLiveDelta.Arrival(
+                        event.getCheckinId(), event.getUserId(), event.getOccurredAt()));
+            } else if (changed.joined.remove(event.getCheckinId()) == null) {
+                //only report a departure if the client could have seen the arrival
+                changed.left.add(event.getCheckinId());
+            }
+            return changed;
+        });
+    }
+
+    /**
+     * Send one coalesced delta per changed venue to its subscribers
+     * A failure is logged and the next run goes on, an exception escaping a
+     * scheduled task would cancel it and stop every feed.
+     */
+    public void flush() {
+        try {
+            sendDeltas();
+            cutOffStalledWrites();
+        } catch (RuntimeException e) {
+            log.error("Live feed flush failed", e);
+        }
+    }
+
+    private void sendDeltas() {
+        for (Long venueId : new ArrayList<>(pending.keySet())) {
+            PendingDelta delta = pending.remove(venueId);
+            Set<Subscriber> targets = subscribers.get(venueId);
+            if (delta == null || targets == null || targets.isEmpty()) {
+                continue;
+            }
+            //out of the map, so no event can add to it anymore
+            if (delta.joined.isEmpty() && delta.left.isEmpty()) {
+                continue;
+            }
+            VenueLiveDelta message = new VenueLiveDelta(venueId, occupancyTracker.getOccupancy(venueId),
+                    new ArrayList<>(delta.joined.values()), new ArrayList<>(delta.left));
+            Message serialized = new Message("delta", toJson(message));
+            for (Subscriber subscriber : targets) {
+                enqueue(subscriber, serialized);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastHeartbeat >= HEARTBEAT_MILLIS) {
+            lastHeartbeat = now;
+            Message heartbeat = new Message(null, "keepalive");
+            subscribers.values().forEach(set -> set.forEach(s -> enqueue(s, heartbeat)));
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, Message message) {
+        if (!subscriber.outbox.offer(message)) {
+            //slow consumer: cut it loose, it can reconnect and get a fresh snapshot
+            close(subscriber);
+            return;
+        }
+        scheduleDrain(subscriber);
+    }
+
+    //writes that ran over the limit: cut the client off and lend the pool a thread until the write returns
+    private void cutOffStalledWrites() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : writing) {
+            synchronized (subscriber) {
+                if (subscriber.writingSince == 0 || subscriber.writeTimedOut
+                        || now - subscriber.writingSince < writeTimeoutNanos) {
+                    continue;
+                }
+                subscriber.writeTimedOut = true;
+                resizeSenders(1);
+            }
+            log.warn("Live feed write to a client of venue {} stalled, disconnecting it", subscriber.venueId);
+            close(subscriber);
+        }
+    }
+
+    private void resizeSenders(int by) {
+        synchronized (senders) {
+            //max can't go below core, so grow max first and shrink core first
+            if (by > 0) {
+                senders.setMaximumPoolSize(senders.getMaximumPoolSize() + by);
+                senders.setCorePoolSize(senders.getCorePoolSize() + by);
+            } else {
+                senders.setCorePoolSize(senders.getCorePoolSize() + by);
+                senders.setMaximumPoolSize(senders.getMaximumPoolSize() + by);
+            }
+        }
+    }
+
+    //stop feeding a subscriber, the emitter is completed off the flush thread (it waits for a write in progress)
+    private void close(Subscriber subscriber) {
+        if (subscriber.closed) {
+            return; //already cut off, or the emitter finished on its own
+        }
+        remove(subscriber);
+        closer.execute(subscriber.emitter::complete);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.ready && !subscriber.closed && subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Message message;
+            while (!subscriber.closed && (message = subscriber.outbox.poll()) != null) {
+                send(subscriber, message);
+            }
+        } catch (IOException | IllegalStateException e) {
+            //client went away
+            remove(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        //something may have arrived between the last poll and clearing the flag
+        if (!subscriber.outbox.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void send(Subscriber subscriber, Message message) throws IOException {
+        synchronized (subscriber) {
+            subscriber.writingSince = System.nanoTime();
+        }
+        writing.add(subscriber);
+        try {
+            if (message.name() == null) {
+                subscriber.emitter.send(SseEmitter.event().comment(message.data()));
+            } else {
+                subscriber.emitter.send(SseEmitter.event().name(message.name()).data(message.data()));
+            }
+        } finally {
+            writing.remove(subscriber);
+            synchronized (subscriber) {
+                subscriber.writingSince = 0;
+                if (subscriber.writeTimedOut) {
+                    //the stalled write returned, give back the thread lent for it
+                    subscriber.writeTimedOut = false;
+                    resizeSenders(-1);
+                }
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.computeIfPresent(subscriber.venueId, (id, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize live feed message", e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.outside.api.service;
+
+import com.outside.api.model.CheckinEvent;
+import com.outside.api.repository.CheckinRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live count of checked-in users per venue
+ *
+ * Counters are rebuilt from the database at startup (in CheckinEventRelay's
+ * startup snapshot, before any event is delivered) and after that only move
+ * on checkin events from CheckinEventBus (plus deletes, which CheckinService
+ * reports directly). Reads never touch the checkins table.
+ */
+@Component
+public class VenueOccupancyTracker {
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private CheckinEventBus eventBus;
+
+    @Autowired
+    private CheckinEventRelay eventRelay;
+
+    //swapped as a whole by rebuild(), readers never see a half built table
+    private volatile Map<Long, LongAdder> counters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void subscribeToEvents() {
+        eventBus.subscribe(event -> adjust(event.getVenueId(),
+                event.getType() == CheckinEvent.Type.CHECKED_IN ? 1 : -1));
+        eventRelay.rebuildOnStartup(this::rebuild);
+    }
+
+    /**
+     * Rebuild every counter from the active checkins in the database
+     */
+    public void rebuild() {
+        Map<Long, LongAdder> rebuilt = new ConcurrentHashMap<>();
+        for (Object[] row : checkinRepository.countActiveCheckinsByVenue()) {
+            rebuilt.computeIfAbsent((Long) row[0], id -> new LongAdder()).add((Long) row[1]);
+        }
+        counters = rebuilt;
+    }
+
+    public void increment(Long venueId) {
+        adjust(venueId, 1);
+    }
+
+    public void decrement(Long venueId) {
+        adjust(venueId, -1);
+    }
+
+    public void adjust(Long venueId, long delta) {
+        counters.computeIfAbsent(venueId, id -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Current number of users checked in at a venue (0 if nobody ever checked in)
+     */
+    public long getOccupancy(Long venueId) {
+        LongAdder counter = counters.get(venueId);
+        return counter == null ? 0 : Math.max(0, counter.sum());
+    }
+
+    /**
+     * Occupancy for several venues at once, in the order the ids were given
+     */
+    public Map<Long, Long> getOccupancy(Collection<Long> venueIds) {
+        Map<Long, Long> result = new LinkedHashMap<>();
+        for (Long venueId : venueIds) {
+            result.put(venueId, getOccupancy(venueId));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,174 @@
+package com.outside.api.service;
+
+import com.outside.api.model.Venue;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory trigram index over venue names
+ *
+ * Every name is split into words and each word into 3-letter pieces, padded
+ * the way Postgres pg_trgm does it ("bar" -> "  b", " ba", "bar", "ar ").
+ * A search looks up the query's trigrams, scores each candidate by how many of
+ * them it shares and bumps up names that start with or contain the query.
+ * Typos still share most trigrams with the real name, so "chicgo" finds "Chicago".
+ *
+ * VenueService keeps this in sync on create/update/delete.
+ */
+@Component
+public class VenueSearchIndex {
+
+    //candidates sharing less than this fraction of the query's trigrams are dropped
+    //unless they contain the query outright
+    private static final double MIN_COVERAGE = 0.5;
+
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private record Entry(Venue venue, String normalizedName, Set<String> trigrams) {}
+
+    private record Scored(Entry entry, double score) {}
+
+    /**
+     * Replace the whole index with the given venues (used at startup)
+     */
+    public synchronized void reload(List<Venue> venues) {
+        postings.clear();
+        entries.clear();
+        for (Venue venue : venues) {
+            put(venue);
+        }
+    }
+
+    /**
+     * Add a venue, or re-index it if its name changed
+     */
+    public synchronized void put(Venue venue) {
+        if (venue.getId() == null || venue.getName() == null) {
+            return;
+        }
+        remove(venue.getId());
+
+        String normalized = normalize(venue.getName());
+        Entry entry = new Entry(venue, normalized, trigrams(normalized));
+        for (String trigram : entry.trigrams()) {
+            postings.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(venue.getId());
+        }
+        entries.put(venue.getId(), entry);
+    }
+
+    public synchronized void remove(Long venueId) {
+        Entry existing = entries.remove(venueId);
+        if (existing == null) {
+            return;
+        }
+        for (String trigram : existing.trigrams()) {
+            Set<Long> ids = postings.get(trigram);
+            if (ids != null) {
+                ids.remove(venueId);
+                if (ids.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Best matching venues for a search box query, best first
+     *
+     * @param query what the user typed
+     * @param limit max number of venues to return
+     */
+    public List<Venue> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        Set<String> queryTrigrams = trigrams(normalized);
+
+        //count shared trigrams per candidate venue
+        Map<Long, Integer> shared = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<Long> ids = postings.get(trigram);
+            if (ids != null) {
+                for (Long id : ids) {
+                    shared.merge(id, 1, Integer::sum);
+                }
+            }
+        }
+
+        //keep the best `limit` in a min-heap
+        Comparator<Scored> byScore = Comparator.comparingDouble(Scored::score)
+                .thenComparing(s -> s.entry().normalizedName(), Comparator.reverseOrder());
+        PriorityQueue<Scored> best = new PriorityQueue<>(limit + 1, byScore);
+        for (Map.Entry<Long, Integer> candidate : shared.entrySet()) {
+            Entry entry = entries.get(candidate.getKey());
+            if (entry == null) {
+                continue;
+            }
+            double score = score(normalized, queryTrigrams.size(), entry, candidate.getValue());
+            if (score <= 0) {
+                continue;
+            }
+            best.add(new Scored(entry, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Scored> ranked = new ArrayList<>(best);
+        ranked.sort(byScore.reversed());
+        List<Venue> venues = new ArrayList<>(ranked.size());
+        for (Scored scored : ranked) {
+            venues.add(scored.entry().venue());
+        }
+        return venues;
+    }
+
+    private static double score(String query, int queryTrigrams, Entry entry, int sharedTrigrams) {
+        //how much of the query shows up in the name (long names aren't penalised for extra words)
+        double coverage = (double) sharedTrigrams / queryTrigrams;
+        //pg_trgm style similarity, used as a tie-breaker so closer names rank higher
+        double similarity = (double) sharedTrigrams / (queryTrigrams + entry.trigrams().size() - sharedTrigrams);
+        double score = 0.7 * coverage + 0.3 * similarity;
+
+        if (entry.normalizedName().startsWith(query)) {
+            return score + 2.0;
+        }
+        if (entry.normalizedName().contains(query)) {
+            return score + 1.0;
+        }
+        return coverage >= MIN_COVERAGE ? score : 0;
+    }
+
+    //lowercase, anything that isn't a letter or digit becomes a single space
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase().replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    static Set<String> trigrams(String normalized) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (String word : normalized.split(" ")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+}
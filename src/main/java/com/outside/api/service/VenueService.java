@@ -1,30 +1,162 @@
 package com.outside.api.service;
 
+import com.outside.api.dto.TrendingVenue;
+import com.outside.api.dto.VenuePage;
+import com.outside.api.dto.VenueStats;
 import com.outside.api.model.Venue;
 import com.outside.api.repository.VenueRepository;
+import io.micrometer.core.annotation.Timed;
 
 //import org.hibernate.annotations.TimeZoneStorage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.Collectors;
 
 @Service
+@Timed("outside.service")
 public class VenueService {
     @Autowired
     private VenueRepository venueRepository;
 
+    @Autowired
+    private VenueSpatialIndex spatialIndex;
+
+    @Autowired
+    private VenueOccupancyTracker occupancyTracker;
+
+    @Autowired
+    private VenueCache venueCache;
+
+    @Autowired
+    private VenueSearchIndex searchIndex;
+
+    @Autowired
+    private VenueLiveFeed liveFeed;
+
+    @Autowired
+    private VenueTrendingTracker trendingTracker;
+
+    @Autowired
+    private VenueStatsRollup statsRollup;
+
+    private static final int MAX_STATS_BUCKETS = 1000;
+
+    /**
+     * Load every venue into the spatial and search indexes once the app is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndexes() {
+        List<Venue> venues = venueRepository.findAll();
+        spatialIndex.reload(venues);
+        searchIndex.reload(venues);
+    }
+
     public List<Venue> getAllVenues() {
         return venueRepository.findAll();
 
     }
 
+    /**
+     * One page of venues ordered by id, with only the requested fields
+     *
+     * @param fields  fields to include, null/empty for all of them (id is always included)
+     * @param afterId keyset cursor: only venues with a greater id, or null
+     * @param page    zero-based page number, used only when afterId is null
+     * @param limit   page size
+     * @throws IllegalArgumentException on an unknown field name
+     */
+    public VenuePage getVenuePage(List<String> fields, Long afterId, int page, int limit) {
+        List<String> selected = resolveFields(fields);
+        int offset = afterId == null ? page * limit : 0;
+
+        //one extra row tells us whether there is a next page
+        List<Map<String, Object>> rows = venueRepository.findVenueFields(selected, afterId, offset, limit + 1);
+        if (rows.size() <= limit) {
+            return new VenuePage(rows, null);
+        }
+        List<Map<String, Object>> venues = rows.subList(0, limit);
+        return new VenuePage(venues, (Long) venues.get(limit - 1).get("id"));
+    }
+
+    /**
+     * Stream every venue (ordered by id, only the given fields) to the consumer
+     * straight off a JDBC cursor
+     *
+     * @param fields fields already checked by resolveFields
+     */
+    @Transactional(readOnly = true)
+    public void streamVenues(List<String> fields, Consumer<Map<String, Object>> consumer) {
+        try (Stream<Map<String, Object>> rows = venueRepository.streamVenueFields(fields)) {
+            rows.forEach(consumer);
+        }
+    }
+
+    /**
+     * Turn a ?fields= list into the columns to select: all of them when empty,
+     * otherwise the requested ones with id always first
+     *
+     * @throws IllegalArgumentException on an unknown field name
+     */
+    public List<String> resolveFields(List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return VenueRepository.ALL_FIELDS;
+        }
+        List<String> selected = new ArrayList<>();
+        selected.add("id");
+        for (String field : fields) {
+            String name = field.trim();
+            if (!VenueRepository.ALL_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown venue field: " + name);
+            }
+            if (!selected.contains(name)) {
+                selected.add(name);
+            }
+        }
+        return selected;
+    }
+
+    //served from VenueCache, only a miss goes to the database
     public Optional<Venue> getVenuebyId(Long id) {
-        return venueRepository.findById(id);
+        return Optional.ofNullable(venueCache.getById(id, key -> venueRepository.findById(key).orElse(null)));
+    }
+
+    //several venues in one IN query (batch check-in), missing ids are just left out
+    public List<Venue> getVenuesByIds(Collection<Long> ids) {
+        return venueRepository.findAllById(ids);
     }
 
     public Venue createVenue(Venue venue) {
-        return venueRepository.save(venue);
+        Venue saved = venueRepository.save(venue);
+        spatialIndex.put(saved);
+        searchIndex.put(saved);
+        venueCache.invalidate(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Make venues that were inserted in bulk (VenueImportService) visible to the
+     * nearby/search indexes and the category cache
+     */
+    public void indexVenues(Collection<Venue> venues) {
+        for (Venue venue : venues) {
+            spatialIndex.put(venue);
+            searchIndex.put(venue);
+        }
+        venueCache.invalidateCategories();
     }
 
     public Venue updateVenue(Long id, Venue venueDetails) {
@@ -42,28 +174,121 @@ public class VenueService {
         venue.setDescription(venueDetails.getDescription());
         venue.setPhotoUrl(venueDetails.getPhotoUrl());
 
-        return venueRepository.save(venue);
+        Venue saved = venueRepository.save(venue);
+        spatialIndex.put(saved);
+        searchIndex.put(saved);
+        venueCache.invalidate(id);
+        return saved;
     }
 
     public List<Venue> getVenuesByCategory(String category) {
-        return venueRepository.findByCategory(category);
+        return venueCache.getByCategory(category, venueRepository::findByCategory);
     }
 
-    //bounding box calculation for nearby venues
+    public Map<String, Map<String, Object>> getCacheStats() {
+        return venueCache.getStats();
+    }
+
+    //nearby venues from the in-memory spatial index, true radius, closest first
     public List<Venue> getVenuesNearby(Double lat, Double lon, Double radiusMi) {
-        Double latDiff = radiusMi / 69.0;
-        Double lonDiff = radiusMi / (69.0 * Math.cos(Math.toRadians(lat)));
+        return spatialIndex.findWithinRadius(lat, lon, radiusMi).stream()
+                .map(VenueSpatialIndex.Match::venue)
+                .collect(Collectors.toList());
+    }
+
+    //live occupancy from in-memory counters (never queries checkins)
+    public long getOccupancy(Long venueId) {
+        return occupancyTracker.getOccupancy(venueId);
+    }
+
+    public Map<Long, Long> getOccupancy(Collection<Long> venueIds) {
+        return occupancyTracker.getOccupancy(venueIds);
+    }
+
+    /**
+     * Busiest venues around a point, from in-memory sliding-window counters
+     *
+     * @param category only venues in this category (case-insensitive), or null for all
+     * @param window   which count to rank by: 15m, 1h or tonight
+     * @param limit    max number of venues
+     * @throws IllegalArgumentException if the window is unknown
+     */
+    public List<TrendingVenue> getTrendingVenues(Double lat, Double lon, Double radiusMi,
+                                                 String category, String window, int limit) {
+        VenueTrendingTracker.Window rankBy = VenueTrendingTracker.Window.fromParam(window);
+
+        Map<Long, VenueSpatialIndex.Match> nearby = new HashMap<>();
+        for (VenueSpatialIndex.Match match : spatialIndex.findWithinRadius(lat, lon, radiusMi)) {
+            if (category == null || category.equalsIgnoreCase(match.venue().getCategory())) {
+                nearby.put(match.venue().getId(), match);
+            }
+        }
+        //walk whichever side is smaller: venues in the circle or venues with recent checkins
+        Collection<Long> active = trendingTracker.getActiveVenueIds();
+        List<Long> candidates = new ArrayList<>();
+        if (active.size() < nearby.size()) {
+            for (Long id : active) {
+                if (nearby.containsKey(id)) {
+                    candidates.add(id);
+                }
+            }
+        } else {
+            candidates.addAll(nearby.keySet());
+        }
+
+        List<TrendingVenue> trending = new ArrayList<>();
+        for (VenueTrendingTracker.Counts counts : trendingTracker.top(candidates, rankBy, limit, LocalDateTime.now())) {
+            VenueSpatialIndex.Match match = nearby.get(counts.venueId());
+            trending.add(new TrendingVenue(match.venue(), match.distanceMi(),
+                    counts.last15Minutes(), counts.lastHour(), counts.tonight()));
+        }
+        return trending;
+    }
+
+    /**
+     * Check-in stats of a venue per hour or day, read from the rollups only
+     *
+     * @param from start (inclusive), defaults to one day (hour) or 30 days (day) before to
+     * @param to   end (exclusive), defaults to now
+     * @throws IllegalArgumentException for an unknown granularity or a bad/too long range
+     */
+    public VenueStats getVenueStats(Long venueId, LocalDateTime from, LocalDateTime to, String granularity) {
+        getVenuebyId(venueId).orElseThrow(() -> new RuntimeException("Venue not found"));
+        VenueStatsRollup.Granularity per = VenueStatsRollup.Granularity.fromParam(granularity);
+        if (to == null) {
+            to = LocalDateTime.now();
+        }
+        if (from == null) {
+            from = per == VenueStatsRollup.Granularity.HOUR ? to.minusDays(1) : to.minusDays(30);
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (Duration.between(from, to).compareTo(per.duration().multipliedBy(MAX_STATS_BUCKETS)) > 0) {
+            throw new IllegalArgumentException("Range covers more than " + MAX_STATS_BUCKETS + " " +
+                    per.name().toLowerCase() + "s, use a coarser granularity");
+        }
+        return new VenueStats(venueId, per.name().toLowerCase(), from, to,
+                statsRollup.getStats(venueId, from, to, per));
+    }
 
-        return venueRepository.findVenuesInBounds(lat-latDiff, lat+latDiff,lon-lonDiff, lon+lonDiff);
+    //SSE feed of who is at a venue: snapshot first, then coalesced deltas
+    public SseEmitter openLiveFeed(Long venueId) {
+        getVenuebyId(venueId).orElseThrow(() -> new RuntimeException("Venue not found"));
+        return liveFeed.subscribe(venueId);
     }
 
-    public List<Venue> searchVenues(String query) {
-        return venueRepository.searchByName(query);
+    //ranked name search from the in-memory trigram index (typo tolerant)
+    public List<Venue> searchVenues(String query, int limit) {
+        return searchIndex.search(query, limit);
     }
 
     //change to soft delete later to preserve data integrity
     public void deleteVenue(Long id) {
         venueRepository.deleteById(id);
+        spatialIndex.remove(id);
+        searchIndex.remove(id);
+        venueCache.invalidate(id);
     }
 
 
@@ -0,0 +1,185 @@
+package com.outside.api.service;
+
+import com.outside.api.model.Venue;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory grid index over venue coordinates
+ *
+ * The world is cut into fixed CELL_DEGREES x CELL_DEGREES cells and every venue
+ * lives in exactly one cell. A radius query only walks the cells that overlap the
+ * search circle's bounding box and then filters by real great-circle distance,
+ * so a lookup touches a handful of cells instead of the whole venues table.
+ * A box with more cells than the index has populated ones (huge radius, near a
+ * pole) walks the populated cells instead, so a query never costs more than the data.
+ *
+ * VenueService keeps this in sync on create/update/delete. Venues written
+ * straight through VenueRepository won't show up until the next reload.
+ */
+@Component
+public class VenueSpatialIndex {
+
+    static final double EARTH_RADIUS_MI = 3958.8;
+
+    //0.02 degrees is ~1.4 miles of latitude, about one neighborhood per cell
+    private static final double CELL_DEGREES = 0.02;
+    private static final int LON_CELLS = (int) Math.ceil(360.0 / CELL_DEGREES);
+
+    private final Map<Long, Map<Long, Entry>> cells = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> entriesById = new ConcurrentHashMap<>();
+
+    /**
+     * A venue plus its precomputed trig values so queries don't redo them per row
+     */
+    private record Entry(Venue venue, long cellKey, double latRad, double lonRad, double cosLat) {}
+
+    /**
+     * A venue with its distance from the query point
+     */
+    public record Match(Venue venue, double distanceMi) {}
+
+    /**
+     * Replace the whole index with the given venues (used at startup)
+     */
+    public synchronized void reload(List<Venue> venues) {
+        cells.clear();
+        entriesById.clear();
+        for (Venue venue : venues) {
+            put(venue);
+        }
+    }
+
+    /**
+     * Add a venue, or move it if its coordinates changed
+     */
+    public synchronized void put(Venue venue) {
+        if (venue.getId() == null || venue.getLatitude() == null || venue.getLongitude() == null) {
+            return;
+        }
+        remove(venue.getId());
+
+        double lat = venue.getLatitude();
+        double lon = venue.getLongitude();
+        double latRad = Math.toRadians(lat);
+        Entry entry = new Entry(venue, cellKey(latCell(lat), lonCell(lon)),
+                latRad, Math.toRadians(lon), Math.cos(latRad));
+
+        cells.computeIfAbsent(entry.cellKey(), k -> new ConcurrentHashMap<>()).put(venue.getId(), entry);
+        entriesById.put(venue.getId(), entry);
+    }
+
+    public synchronized void remove(Long venueId) {
+        Entry existing = entriesById.remove(venueId);
+        if (existing == null) {
+            return;
+        }
+        Map<Long, Entry> cell = cells.get(existing.cellKey());
+        if (cell != null) {
+            cell.remove(venueId);
+            if (cell.isEmpty()) {
+                cells.remove(existing.cellKey());
+            }
+        }
+    }
+
+    public int size() {
+        return entriesById.size();
+    }
+
+    /**
+     * Find all venues within radiusMi of (lat, lon), closest first
+     *
+     * @param lat      latitude of the search center
+     * @param lon      longitude of the search center
+     * @param radiusMi search radius in miles (great-circle distance)
+     * @return matches sorted by distance ascending
+     */
+    public List<Match> findWithinRadius(double lat, double lon, double radiusMi) {
+        double latRad = Math.toRadians(lat);
+        double lonRad = Math.toRadians(lon);
+        double cosLat = Math.cos(latRad);
+
+        //bounding box of the circle in degrees (69 miles per degree of latitude)
+        double latDiff = radiusMi / 69.0;
+        double lonDiff = cosLat < 1e-6 ? 180.0 : Math.min(180.0, radiusMi / (69.0 * cosLat));
+
+        int minLatCell = latCell(Math.max(-90.0, lat - latDiff));
+        int maxLatCell = latCell(Math.min(90.0, lat + latDiff));
+        int minLonCell = (int) Math.floor((lon - lonDiff + 180.0) / CELL_DEGREES);
+        int maxLonCell = (int) Math.floor((lon + lonDiff + 180.0) / CELL_DEGREES);
+        if (maxLonCell - minLonCell >= LON_CELLS) {
+            minLonCell = 0;
+            maxLonCell = LON_CELLS - 1;
+        }
+
+        List<Match> matches = new ArrayList<>();
+        long boxCells = (long) (maxLatCell - minLatCell + 1) * (maxLonCell - minLonCell + 1);
+        if (boxCells > cells.size()) {
+            //wide radius or near a pole: fewer populated cells than cells in the box, walk those instead
+            int lonSpan = maxLonCell - minLonCell;
+            for (Map.Entry<Long, Map<Long, Entry>> cell : cells.entrySet()) {
+                long key = cell.getKey();
+                int latCell = (int) (key >> 32);
+                int lonCell = (int) key;
+                if (latCell < minLatCell || latCell > maxLatCell
+                        || Math.floorMod(lonCell - minLonCell, LON_CELLS) > lonSpan) {
+                    continue;
+                }
+                for (Entry entry : cell.getValue().values()) {
+                    addIfWithin(matches, latRad, lonRad, cosLat, entry, radiusMi);
+                }
+            }
+            matches.sort(Comparator.comparingDouble(Match::distanceMi));
+            return matches;
+        }
+        for (int latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (int x = minLonCell; x <= maxLonCell; x++) {
+                //wrap around the antimeridian
+                int lonCell = Math.floorMod(x, LON_CELLS);
+                Map<Long, Entry> cell = cells.get(cellKey(latCell, lonCell));
+                if (cell == null) {
+                    continue;
+                }
+                for (Entry entry : cell.values()) {
+                    addIfWithin(matches, latRad, lonRad, cosLat, entry, radiusMi);
+                }
+            }
+        }
+
+        matches.sort(Comparator.comparingDouble(Match::distanceMi));
+        return matches;
+    }
+
+    private static void addIfWithin(List<Match> matches, double latRad, double lonRad, double cosLat,
+                                    Entry entry, double radiusMi) {
+        double distance = haversineMi(latRad, lonRad, cosLat, entry);
+        if (distance <= radiusMi) {
+            matches.add(new Match(entry.venue(), distance));
+        }
+    }
+
+    private static double haversineMi(double latRad, double lonRad, double cosLat, Entry entry) {
+        double sinDLat = Math.sin((entry.latRad() - latRad) / 2);
+        double sinDLon = Math.sin((entry.lonRad() - lonRad) / 2);
+        double a = sinDLat * sinDLat + cosLat * entry.cosLat() * sinDLon * sinDLon;
+        return 2 * EARTH_RADIUS_MI * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private static int latCell(double lat) {
+        return (int) Math.floor((lat + 90.0) / CELL_DEGREES);
+    }
+
+    private static int lonCell(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180.0) / CELL_DEGREES), LON_CELLS);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+}
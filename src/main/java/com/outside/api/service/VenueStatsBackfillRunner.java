@@ -0,0 +1,66 @@
+package com.outside.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Command line venue stats backfill: rebuilds the hourly rollups from checkin history and exits
+ *
+ *   java -jar app.jar --spring.main.web-application-type=none --backfill-venue-stats=2026-01-01
+ *
+ * Takes an ISO date or date-time, --backfill-venue-stats-to= sets the end (default now).
+ * Hours in the range are replaced, so it is safe to run again. Hours that haven't
+ * closed yet are left to the running app's live rollup (see VenueStatsRollup.backfill). Without
+ * --backfill-venue-stats the app starts as usual.
+ */
+@Component
+public class VenueStatsBackfillRunner implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(VenueStatsBackfillRunner.class);
+
+    @Autowired
+    private VenueStatsRollup statsRollup;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> from = args.getOptionValues("backfill-venue-stats");
+        if (from == null) {
+            return;
+        }
+        List<String> to = args.getOptionValues("backfill-venue-stats-to");
+
+        int exitCode = 0;
+        try {
+            long started = System.currentTimeMillis();
+            int rows = statsRollup.backfill(parse(from.get(0)),
+                    to == null ? LocalDateTime.now() : parse(to.get(0)));
+            log.info("Venue stats backfill: {} hour rows in {} ms", rows, System.currentTimeMillis() - started);
+        } catch (DateTimeParseException e) {
+            log.error("Venue stats backfill: {}", e.getMessage());
+            exitCode = 1;
+        } catch (RuntimeException e) {
+            log.error("Venue stats backfill failed", e);
+            exitCode = 1;
+        }
+
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private static LocalDateTime parse(String value) {
+        return value.contains("T") ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+    }
+}
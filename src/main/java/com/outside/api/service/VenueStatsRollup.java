@@ -0,0 +1,420 @@
+package com.outside.api.service;
+
+import com.outside.api.dto.VenueStats;
+import com.outside.api.model.CheckinEvent;
+import com.outside.api.model.VenueHourlyStats;
+import com.outside.api.repository.ArchivedCheckinRepository;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.VenueHourlyStatsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per venue, per hour check-in rollups (venue_hourly_stats) for venue analytics
+ *
+ * Kept up to date from CheckinEventBus: every event lands in an in-memory delta
+ * for its venue and hour, and every flushIntervalMs the deltas are added onto
+ * the rows in one transaction, so a busy venue costs one row update per flush
+ * instead of one per check-in. Peak occupancy is read off VenueOccupancyTracker
+ * as events move it, i.e. off this instance's counter. That is the venue's real
+ * occupancy only because one instance at a time relays events (see CheckinEventRelay),
+ * with several each one's counter would miss the others' check-ins.
+ *
+ * backfill() recomputes closed hours from checkins (hot table and archive) and
+ * replaces their rows, it leaves the hours live deltas still land on alone.
+ * At startup the hours since the last rolled up one (at most catchUpHours back)
+ * are backfilled, which also covers deltas that were still in memory when the
+ * app stopped. The catch-up runs in CheckinEventRelay's startup snapshot, so every
+ * checkin is counted once: by the backfill if it was committed before the snapshot,
+ * by its delivered event if after. Older history is filled in with VenueStatsBackfillRunner.
+ *
+ * Deleting a checkin doesn't take it back out of hours already rolled up, a
+ * backfill of those hours does.
+ */
+@Component
+public class VenueStatsRollup {
+    private static final Logger log = LoggerFactory.getLogger(VenueStatsRollup.class);
+
+    private static final int JDBC_BATCH_SIZE = 50;
+    //checkins are auto closed after a couple of hours, a day back finds everyone still there at the start of a window
+    private static final int SPAN_LOOKBACK_HOURS = 24;
+    private static final int DWELL_LOOKUP_CHUNK = 1000;
+    //events reach record() within seconds, an hour that ended this long ago gets no more deltas
+    private static final int HOUR_CLOSED_AFTER_MINUTES = 10;
+
+    public enum Granularity {
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public Duration duration() {
+            return unit.getDuration();
+        }
+
+        public LocalDateTime bucketStart(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+
+        /**
+         * Granularity from its query parameter value (hour, day)
+         *
+         * @throws IllegalArgumentException for anything else
+         */
+        public static Granularity fromParam(String value) {
+            for (Granularity granularity : values()) {
+                if (granularity.name().equalsIgnoreCase(value)) {
+                    return granularity;
+                }
+            }
+            throw new IllegalArgumentException("Granularity must be one of hour, day");
+        }
+    }
+
+    @Autowired
+    private VenueHourlyStatsRepository statsRepository;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private ArchivedCheckinRepository archivedCheckinRepository;
+
+    //injected so its subscriber is registered (and applies each event) before ours
+    @Autowired
+    private VenueOccupancyTracker occupancyTracker;
+
+    @Autowired
+    private CheckinEventBus eventBus;
+
+    @Autowired
+    private CheckinEventRelay eventRelay;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${outside.stats.catch-up-hours:24}")
+    private int catchUpHours;
+
+    //events not written to the table yet, guarded by its own monitor
+    private final Map<VenueHourlyStats.Key, Delta> pending = new HashMap<>();
+
+    @PostConstruct
+    public void subscribeToEvents() {
+        eventBus.subscribe(this::record);
+        eventRelay.rebuildOnStartup(this::catchUp);
+    }
+
+    /**
+     * Backfill the hours the table may be missing: since the latest rolled up
+     * hour (it may only be partly written), at most catchUpHours back
+     * (at startup, in CheckinEventRelay's startup snapshot)
+     */
+    public void catchUp() {
+        synchronized (pending) {
+            //left from before this instance lost the lease, the one that took it over counted them
+            pending.clear();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = now.minusHours(catchUpHours);
+        LocalDateTime latest = statsRepository.findLatestHour();
+        if (latest != null && latest.isAfter(since)) {
+            since = latest;
+        }
+        rewrite(hourOf(since), hourOf(now).plusHours(1));
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    private void record(CheckinEvent event) {
+        boolean arrival = event.getType() == CheckinEvent.Type.CHECKED_IN;
+        long after = occupancyTracker.getOccupancy(event.getVenueId());
+        //the busier side of the move, a departure right at the start of the hour still saw the user there
+        long peak = arrival ? after : after + 1;
+
+        VenueHourlyStats.Key key = new VenueHourlyStats.Key(event.getVenueId(), hourOf(event.getOccurredAt()));
+        synchronized (pending) {
+            Delta delta = pending.computeIfAbsent(key, k -> new Delta());
+            delta.peak = Math.max(delta.peak, (int) peak);
+            if (arrival) {
+                delta.arrivals++;
+            } else {
+                delta.departures++;
+                delta.departed.add(event);
+            }
+        }
+    }
+
+    /**
+     * Add the deltas collected since the last run onto their hour rows
+     * On failure, or on a standby, they are kept for the next run.
+     *
+     * @return number of hour rows written
+     */
+    @Scheduled(fixedDelayString = "${outside.stats.flush-interval-ms:10000}")
+    public synchronized int flush() {
+        if (!eventRelay.isActive()) {
+            return 0; //kept until the lease is renewed, or dropped by catchUp if another instance took it
+        }
+        Map<VenueHourlyStats.Key, Delta> deltas;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return 0;
+            }
+            deltas = new HashMap<>(pending);
+            pending.clear();
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeDeltas(deltas));
+        } catch (RuntimeException e) {
+            log.warn("Venue stats flush of {} hours failed, keeping them for the next run", deltas.size(), e);
+            synchronized (pending) {
+                deltas.forEach((key, delta) -> pending.merge(key, delta, Delta::add));
+            }
+            return 0;
+        }
+        return deltas.size();
+    }
+
+    private void writeDeltas(Map<VenueHourlyStats.Key, Delta> deltas) {
+        addDwellTimes(deltas.values());
+
+        //updates first: the native update flushes the session, pending inserts would go out one by one
+        List<VenueHourlyStats> newHours = new ArrayList<>();
+        for (Map.Entry<VenueHourlyStats.Key, Delta> entry : deltas.entrySet()) {
+            VenueHourlyStats.Key key = entry.getKey();
+            Delta delta = entry.getValue();
+            int updated = statsRepository.addToHour(key.getVenueId(), key.getHourStart(),
+                    delta.arrivals, delta.departures, delta.peak, delta.dwellSeconds);
+            if (updated == 0) {
+                newHours.add(delta.toRow(key));
+            }
+        }
+        persist(newHours);
+    }
+
+    //dwell time of every departure from its checkin time, then the departures are done with
+    private void addDwellTimes(Iterable<Delta> deltas) {
+        List<Long> checkinIds = new ArrayList<>();
+        for (Delta delta : deltas) {
+            for (CheckinEvent event : delta.departed) {
+                checkinIds.add(event.getCheckinId());
+            }
+        }
+        Map<Long, LocalDateTime> checkinTimes = new HashMap<>();
+        for (int i = 0; i < checkinIds.size(); i += DWELL_LOOKUP_CHUNK) {
+            List<Long> chunk = checkinIds.subList(i, Math.min(i + DWELL_LOOKUP_CHUNK, checkinIds.size()));
+            for (Object[] row : checkinRepository.findCheckinTimesByIds(chunk)) {
+                checkinTimes.put((Long) row[0], (LocalDateTime) row[1]);
+            }
+        }
+
+        for (Delta delta : deltas) {
+            for (CheckinEvent event : delta.departed) {
+                LocalDateTime checkinTime = checkinTimes.get(event.getCheckinId());
+                if (checkinTime != null) { //deleted since
+                    delta.dwellSeconds += Duration.between(checkinTime, event.getOccurredAt()).toSeconds();
+                }
+            }
+            delta.departed.clear();
+        }
+    }
+
+    /**
+     * Recompute the closed hours from `from` to `to` (rounded out to whole hours)
+     * from the checkins table and replace their rows, a day per transaction
+     *
+     * Only hours that ended at least HOUR_CLOSED_AFTER_MINUTES ago are touched,
+     * `to` is capped there: live deltas keep landing on the current hour, on this
+     * instance or another one, and the backfill can't tell which of them its own
+     * reads already counted. The current hour is caught up at startup instead,
+     * where nothing is delivered while it's read.
+     *
+     * @return number of hour rows written
+     */
+    public int backfill(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime closed = hourOf(LocalDateTime.now().minusMinutes(HOUR_CLOSED_AFTER_MINUTES));
+        return rewrite(hourOf(from), to.isBefore(closed) ? hourOf(to).plusHours(1) : closed);
+    }
+
+    /**
+     * Replace the rows of the hours in [start, end), a day per transaction.
+     * Deltas of those hours still in memory are dropped, the checkins they came
+     * from are counted here.
+     */
+    private synchronized int rewrite(LocalDateTime start, LocalDateTime end) {
+        if (!start.isBefore(end)) {
+            return 0;
+        }
+
+        synchronized (pending) {
+            pending.keySet().removeIf(key -> !key.getHourStart().isBefore(start) && key.getHourStart().isBefore(end));
+        }
+
+        int written = 0;
+        for (LocalDateTime chunkStart = start; chunkStart.isBefore(end); chunkStart = chunkStart.plusDays(1)) {
+            LocalDateTime chunkEnd = chunkStart.plusDays(1).isBefore(end) ? chunkStart.plusDays(1) : end;
+            LocalDateTime windowStart = chunkStart;
+            Integer rows = transactionTemplate.execute(status -> backfillChunk(windowStart, chunkEnd));
+            written += rows == null ? 0 : rows;
+        }
+        log.info("Backfilled venue stats from {} to {}: {} hour rows", start, end, written);
+        return written;
+    }
+
+    private int backfillChunk(LocalDateTime start, LocalDateTime end) {
+        Map<Long, List<Step>> stepsByVenue = new HashMap<>();
+        Map<Long, Integer> occupancyAtStart = new HashMap<>();
+        //both tiers, old hours live in the archive
+        LocalDateTime since = start.minusHours(SPAN_LOOKBACK_HOURS);
+        List<Object[]> spans = new ArrayList<>(checkinRepository.findCheckinSpans(since, end));
+        spans.addAll(archivedCheckinRepository.findCheckinSpans(since, end));
+        for (Object[] row : spans) {
+            Long venueId = (Long) row[0];
+            LocalDateTime checkin = (LocalDateTime) row[1];
+            LocalDateTime checkout = (LocalDateTime) row[2];
+            List<Step> steps = stepsByVenue.computeIfAbsent(venueId, id -> new ArrayList<>());
+            if (checkin.isBefore(start)) {
+                if (checkout == null || !checkout.isBefore(start)) {
+                    occupancyAtStart.merge(venueId, 1, Integer::sum);
+                }
+            } else {
+                steps.add(new Step(checkin, true, 0));
+            }
+            if (checkout != null && !checkout.isBefore(start) && checkout.isBefore(end)) {
+                steps.add(new Step(checkout, false, Duration.between(checkin, checkout).toSeconds()));
+            }
+        }
+
+        List<VenueHourlyStats> rows = new ArrayList<>();
+        for (Map.Entry<Long, List<Step>> venue : stepsByVenue.entrySet()) {
+            List<Step> steps = venue.getValue();
+            //replay in time order, departures first on a tie so a hop doesn't count twice
+            steps.sort(Comparator.comparing(Step::time).thenComparing(Step::arrival));
+            int occupancy = occupancyAtStart.getOrDefault(venue.getKey(), 0);
+            Map<LocalDateTime, Delta> hours = new LinkedHashMap<>();
+            for (Step step : steps) {
+                Delta hour = hours.computeIfAbsent(hourOf(step.time()), h -> new Delta());
+                int before = occupancy;
+                occupancy += step.arrival() ? 1 : -1;
+                hour.peak = Math.max(hour.peak, Math.max(before, occupancy));
+                if (step.arrival()) {
+                    hour.arrivals++;
+                } else {
+                    hour.departures++;
+                    hour.dwellSeconds += step.dwellSeconds();
+                }
+            }
+            hours.forEach((hourStart, delta) ->
+                    rows.add(delta.toRow(new VenueHourlyStats.Key(venue.getKey(), hourStart))));
+        }
+
+        statsRepository.deleteHours(start, end);
+        persist(rows);
+        return rows.size();
+    }
+
+    private void persist(List<VenueHourlyStats> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        entityManager.unwrap(Session.class).setJdbcBatchSize(JDBC_BATCH_SIZE);
+        for (VenueHourlyStats row : rows) {
+            entityManager.persist(row);
+        }
+        entityManager.flush();
+        //nothing reads these back, don't let the persistence context grow
+        entityManager.clear();
+    }
+
+    /**
+     * Rolled up stats of a venue in [from, to), one bucket per hour or day that
+     * had any activity, oldest first
+     */
+    public List<VenueStats.Bucket> getStats(Long venueId, LocalDateTime from, LocalDateTime to, Granularity granularity) {
+        Map<LocalDateTime, Delta> buckets = new LinkedHashMap<>();
+        for (VenueHourlyStats hour : statsRepository.findHours(venueId, hourOf(from), to)) {
+            Delta bucket = buckets.computeIfAbsent(granularity.bucketStart(hour.getHourStart()), start -> new Delta());
+            bucket.arrivals += hour.getArrivals();
+            bucket.departures += hour.getDepartures();
+            bucket.peak = Math.max(bucket.peak, hour.getPeakOccupancy());
+            bucket.dwellSeconds += hour.getDwellSeconds();
+        }
+
+        List<VenueStats.Bucket> result = new ArrayList<>(buckets.size());
+        buckets.forEach((start, bucket) -> result.add(new VenueStats.Bucket(start, bucket.arrivals, bucket.departures,
+                bucket.peak, bucket.departures == 0 ? null
+                        : Math.round(bucket.dwellSeconds / 6.0 / bucket.departures) / 10.0)));
+        return result;
+    }
+
+    private static LocalDateTime hourOf(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    //a check-in (arrival) or checkout (departure) replayed by the backfill
+    private record Step(LocalDateTime time, boolean arrival, long dwellSeconds) {}
+
+    /**
+     * Activity of one venue-hour (or bucket) not written yet
+     */
+    private static final class Delta {
+        int arrivals;
+        int departures;
+        int peak;
+        long dwellSeconds;
+        //departures whose dwell time still has to be looked up
+        final List<CheckinEvent> departed = new ArrayList<>();
+
+        Delta add(Delta other) {
+            arrivals += other.arrivals;
+            departures += other.departures;
+            peak = Math.max(peak, other.peak);
+            dwellSeconds += other.dwellSeconds;
+            departed.addAll(other.departed);
+            return this;
+        }
+
+        VenueHourlyStats toRow(VenueHourlyStats.Key key) {
+            VenueHourlyStats row = new VenueHourlyStats();
+            row.setVenueId(key.getVenueId());
+            row.setHourStart(key.getHourStart());
+            row.setArrivals(arrivals);
+            row.setDepartures(departures);
+            row.setPeakOccupancy(peak);
+            row.setDwellSeconds(dwellSeconds);
+            return row;
+        }
+    }
+}
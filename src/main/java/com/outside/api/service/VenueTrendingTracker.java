@@ -0,0 +1,273 @@
+package com.outside.api.service;
+
+import com.outside.api.model.CheckinEvent;
+import com.outside.api.repository.CheckinRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sliding-window check-in counts per venue, for the trending list
+ *
+ * Every venue gets a ring buffer of 60 one-minute buckets, so "last 15 minutes"
+ * and "last hour" are a sum over at most 60 longs, plus a counter for the
+ * current night (nightStartHour until nightEndHour the next morning).
+ * Counts come from CHECKED_IN events on CheckinEventBus and are rebuilt from
+ * the checkins table at startup, nothing is queried per request. Once a minute
+ * venues whose counts all dropped to zero are forgotten again, so the map only
+ * holds venues that are trending somewhere.
+ */
+@Component
+public class VenueTrendingTracker {
+
+    private static final int BUCKETS = 60;
+
+    public enum Window {
+        LAST_15_MINUTES("15m"),
+        LAST_HOUR("1h"),
+        TONIGHT("tonight");
+
+        private final String param;
+
+        Window(String param) {
+            this.param = param;
+        }
+
+        /**
+         * Window from its query parameter value (15m, 1h, tonight)
+         *
+         * @throws IllegalArgumentException for anything else
+         */
+        public static Window fromParam(String value) {
+            for (Window window : values()) {
+                if (window.param.equalsIgnoreCase(value)) {
+                    return window;
+                }
+            }
+            throw new IllegalArgumentException("Window must be one of 15m, 1h, tonight");
+        }
+    }
+
+    /**
+     * Counts for one venue at one moment
+     */
+    public record Counts(long venueId, long last15Minutes, long lastHour, long tonight) {
+        long get(Window window) {
+            return switch (window) {
+                case LAST_15_MINUTES -> last15Minutes;
+                case LAST_HOUR -> lastHour;
+                case TONIGHT -> tonight;
+            };
+        }
+    }
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private CheckinEventBus eventBus;
+
+    @Autowired
+    private CheckinEventRelay eventRelay;
+
+    private final int nightStartHour;
+    private final int nightEndHour;
+    //swapped as a whole by rebuild(), readers never see a half built table
+    private volatile Map<Long, VenueCounter> counters = new ConcurrentHashMap<>();
+
+    public VenueTrendingTracker(@Value("${outside.trending.night-start-hour:17}") int nightStartHour,
+                                @Value("${outside.trending.night-end-hour:5}") int nightEndHour) {
+        this.nightStartHour = nightStartHour;
+        this.nightEndHour = nightEndHour;
+    }
+
+    @PostConstruct
+    public void subscribeToEvents() {
+        eventBus.subscribe(event -> {
+            if (event.getType() == CheckinEvent.Type.CHECKED_IN) {
+                record(event.getVenueId(), event.getOccurredAt());
+            }
+        });
+        eventRelay.rebuildOnStartup(this::rebuild);
+    }
+
+    /**
+     * Rebuild every counter from checkins made during the last hour or tonight
+     * (at startup, in CheckinEventRelay's startup snapshot)
+     */
+    public void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = now.minusMinutes(BUCKETS);
+        LocalDateTime nightStart = nightStart(now);
+        if (nightStart != null && nightStart.isBefore(since)) {
+            since = nightStart;
+        }
+
+        Map<Long, VenueCounter> rebuilt = new ConcurrentHashMap<>();
+        for (Object[] row : checkinRepository.findCheckinTimesSince(since)) {
+            record(rebuilt, (Long) row[0], (LocalDateTime) row[1]);
+        }
+        counters = rebuilt;
+    }
+
+    public void record(Long venueId, LocalDateTime checkinTime) {
+        record(counters, venueId, checkinTime);
+    }
+
+    private void record(Map<Long, VenueCounter> counters, Long venueId, LocalDateTime checkinTime) {
+        //inside compute so prune can't drop the counter between lookup and add
+        counters.compute(venueId, (id, counter) -> {
+            VenueCounter updated = counter == null ? new VenueCounter() : counter;
+            updated.add(checkinTime);
+            return updated;
+        });
+    }
+
+    @Scheduled(fixedRate = 60 * 1000) //every minute
+    public void pruneIdleVenues() {
+        prune(LocalDateTime.now());
+    }
+
+    /**
+     * Forget venues with nothing in the last hour and nothing tonight
+     *
+     * @return number of venues dropped
+     */
+    public int prune(LocalDateTime now) {
+        Map<Long, VenueCounter> counters = this.counters;
+        int dropped = 0;
+        for (Long venueId : counters.keySet()) {
+            if (counters.computeIfPresent(venueId, (id, counter) -> counter.isIdle(now) ? null : counter) == null) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    public Counts getCounts(Long venueId, LocalDateTime now) {
+        VenueCounter counter = counters.get(venueId);
+        return counter == null ? new Counts(venueId, 0, 0, 0) : counter.counts(venueId, now);
+    }
+
+    /**
+     * Venues with any check-ins in the last hour or tonight (plus venues that
+     * went quiet since the last prune, at most a minute ago)
+     */
+    public Collection<Long> getActiveVenueIds() {
+        return counters.keySet();
+    }
+
+    /**
+     * The k busiest of the given venues for a window, busiest first
+     * Ties are broken by the last hour, then by venue id. Venues with a zero
+     * count for the window are left out.
+     */
+    public List<Counts> top(Collection<Long> venueIds, Window window, int k, LocalDateTime now) {
+        Comparator<Counts> order = Comparator.<Counts>comparingLong(c -> c.get(window))
+                .thenComparingLong(Counts::lastHour)
+                .thenComparing(Counts::venueId, Comparator.reverseOrder());
+
+        //min-heap of the best k seen so far
+        PriorityQueue<Counts> best = new PriorityQueue<>(k + 1, order);
+        for (Long venueId : venueIds) {
+            Counts counts = getCounts(venueId, now);
+            if (counts.get(window) == 0) {
+                continue;
+            }
+            best.add(counts);
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+
+        List<Counts> ranked = new ArrayList<>(best);
+        ranked.sort(order.reversed());
+        return ranked;
+    }
+
+    //start of the night `time` belongs to, or null if it's daytime
+    private LocalDateTime nightStart(LocalDateTime time) {
+        //shift so the whole night falls on one calendar day
+        LocalDateTime shifted = time.minusHours(nightEndHour);
+        if (shifted.getHour() < nightStartHour - nightEndHour) {
+            return null;
+        }
+        return shifted.toLocalDate().atTime(nightStartHour, 0);
+    }
+
+    private static long epochMinute(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond() / 60;
+    }
+
+    /**
+     * Ring buffer for one venue, guarded by its own lock
+     */
+    private class VenueCounter {
+        private final long[] minutes = new long[BUCKETS];
+        private final long[] counts = new long[BUCKETS];
+        private LocalDate night;
+        private long tonight;
+
+        synchronized void add(LocalDateTime time) {
+            long minute = epochMinute(time);
+            int slot = (int) Math.floorMod(minute, (long) BUCKETS);
+            if (minutes[slot] < minute) {
+                //slot still holds a minute from an older lap
+                minutes[slot] = minute;
+                counts[slot] = 0;
+            }
+            //older than the slot's minute means it's out of the hour already
+            if (minutes[slot] == minute) {
+                counts[slot]++;
+            }
+
+            LocalDateTime start = nightStart(time);
+            if (start != null) {
+                if (night == null || start.toLocalDate().isAfter(night)) {
+                    night = start.toLocalDate();
+                    tonight = 0;
+                }
+                if (start.toLocalDate().equals(night)) {
+                    tonight++;
+                }
+            }
+        }
+
+        synchronized boolean isIdle(LocalDateTime now) {
+            Counts counts = counts(0, now);
+            return counts.lastHour() == 0 && counts.tonight() == 0;
+        }
+
+        synchronized Counts counts(long venueId, LocalDateTime now) {
+            long nowMinute = epochMinute(now);
+            long last15 = 0;
+            long lastHour = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                long age = nowMinute - minutes[i];
+                if (age < 0 || age >= BUCKETS || counts[i] == 0) {
+                    continue;
+                }
+                lastHour += counts[i];
+                if (age < 15) {
+                    last15 += counts[i];
+                }
+            }
+            LocalDateTime start = nightStart(now);
+            long night = start != null && start.toLocalDate().equals(this.night) ? tonight : 0;
+            return new Counts(venueId, last15, lastHour, night);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+-- Schema as it was generated by Hibernate (ddl-auto) before migrations took over
+
+CREATE TABLE users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password_hash VARCHAR(255) NOT NULL,
+    username VARCHAR(255) NOT NULL,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE venues (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    address VARCHAR(255),
+    latitude FLOAT(53) NOT NULL,
+    longitude FLOAT(53) NOT NULL,
+    category VARCHAR(255),
+    phone_number VARCHAR(255),
+    website VARCHAR(255),
+    age_restriction INTEGER,
+    cover_charge VARCHAR(255),
+    description TEXT,
+    photo_url VARCHAR(255),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE checkins (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    venue_id BIGINT NOT NULL,
+    checkin_time TIMESTAMP(6) NOT NULL,
+    checkout_time TIMESTAMP(6),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    CONSTRAINT fk_checkins_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_checkins_venue FOREIGN KEY (venue_id) REFERENCES venues (id)
+);
+
+CREATE TABLE checkin_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type ENUM('AUTO_EXPIRED', 'CHECKED_IN', 'CHECKED_OUT') NOT NULL,
+    checkin_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    venue_id BIGINT NOT NULL,
+    occurred_at TIMESTAMP(6) NOT NULL,
+    published_at TIMESTAMP(6)
+);
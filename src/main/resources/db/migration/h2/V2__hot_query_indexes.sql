@@ -0,0 +1,28 @@
+-- Indexes for the hot CheckinRepository / VenueRepository / UserRepository queries
+-- Keep in step with postgresql/V2__hot_query_indexes.sql, QueryPlanTest checks these get used.
+
+-- One active checkin per user. H2 has no partial indexes, so the unique index goes on a
+-- column that is only set while the checkin is open (NULLs never collide)
+ALTER TABLE checkins ADD COLUMN active_user_id BIGINT
+    GENERATED ALWAYS AS (CASE WHEN checkout_time IS NULL THEN user_id END);
+CREATE UNIQUE INDEX ux_checkins_active_user ON checkins (active_user_id);
+
+-- active checkins of a user (check-in auto checkout)
+CREATE INDEX idx_checkins_user_active ON checkins (user_id, checkout_time);
+-- who is at a venue / occupancy rebuild
+CREATE INDEX idx_checkins_venue_active ON checkins (venue_id, checkout_time);
+-- cooldown: latest checkin of a user at a venue
+CREATE INDEX idx_checkins_user_venue_time ON checkins (user_id, venue_id, checkin_time DESC);
+-- history keyset paging
+CREATE INDEX idx_checkins_user_time ON checkins (user_id, checkin_time DESC, id DESC);
+-- expiry sweep and expiry wheel reload
+CREATE INDEX idx_checkins_active_time ON checkins (checkout_time, checkin_time);
+-- trending rebuild
+CREATE INDEX idx_checkins_checkin_time ON checkins (checkin_time);
+
+-- outbox relay and purge
+CREATE INDEX idx_checkin_events_pending ON checkin_events (published_at, id);
+
+CREATE INDEX idx_venues_category ON venues (category);
+CREATE INDEX idx_venues_lat_lon ON venues (latitude, longitude);
+CREATE INDEX idx_users_username ON users (username);
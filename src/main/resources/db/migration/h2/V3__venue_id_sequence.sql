@@ -0,0 +1,9 @@
+-- Venue ids come from a sequence instead of IDENTITY so Hibernate can batch inserts
+-- (bulk venue import). INCREMENT BY matches the allocationSize on Venue.id: each
+-- nextval hands the app a block of 50 ids. Keep in step with postgresql/V3.
+
+CREATE SEQUENCE venues_seq START WITH 1 INCREMENT BY 50;
+
+-- plain SQL inserts draw from the same sequence so they can't collide with Hibernate's blocks
+ALTER TABLE venues ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE venues ALTER COLUMN id SET DEFAULT NEXT VALUE FOR venues_seq;
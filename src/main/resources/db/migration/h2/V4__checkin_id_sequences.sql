@@ -0,0 +1,10 @@
+-- Checkin and outbox event ids come from sequences (like venues in V3) so a batch
+-- check-in inserts its rows as JDBC batches. Keep in step with postgresql/V4.
+
+CREATE SEQUENCE checkins_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE checkins ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE checkins ALTER COLUMN id SET DEFAULT NEXT VALUE FOR checkins_seq;
+
+CREATE SEQUENCE checkin_events_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE checkin_events ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE checkin_events ALTER COLUMN id SET DEFAULT NEXT VALUE FOR checkin_events_seq;
@@ -0,0 +1,19 @@
+-- Cold tier for checkins: CheckinArchiver moves rows closed more than
+-- outside.checkin.archive.after-days ago here, so the hot table and its indexes
+-- only hold recent data. Rows are never updated. No foreign keys, like
+-- checkin_events, archived history outlives users and venues. Keep in step with postgresql/V7.
+
+CREATE TABLE checkins_archive (
+    id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    venue_id BIGINT NOT NULL,
+    checkin_time TIMESTAMP(6) NOT NULL,
+    checkout_time TIMESTAMP(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+-- history keyset paging (same order as idx_checkins_user_time)
+CREATE INDEX idx_checkins_archive_user_time ON checkins_archive (user_id, checkin_time DESC, id DESC);
+-- venue stats backfill
+CREATE INDEX idx_checkins_archive_checkin_time ON checkins_archive (checkin_time);
@@ -0,0 +1,13 @@
+-- Lease held by CheckinEventRelay: the in-memory checkin state is fed from the
+-- outbox's shared published_at column, so only one instance at a time may relay
+-- (the others stand by). Exactly one row, taken when expired and renewed while
+-- the owner runs.
+-- Keep in step with postgresql/V8.
+
+CREATE TABLE checkin_event_relay_lease (
+    id INTEGER PRIMARY KEY,
+    owner VARCHAR(255) NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL
+);
+
+INSERT INTO checkin_event_relay_lease (id, owner, expires_at) VALUES (1, '', TIMESTAMP '1970-01-01 00:00:00');
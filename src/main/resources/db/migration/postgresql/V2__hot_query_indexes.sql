@@ -0,0 +1,35 @@
+-- Indexes for the hot CheckinRepository / VenueRepository / UserRepository queries
+-- Keep in step with h2/V2__hot_query_indexes.sql (QueryPlanTest runs against that one,
+-- PostgresQueryPlanTest against this one when Docker is available).
+-- Plain CREATE INDEX (not CONCURRENTLY) since Flyway runs this in a transaction:
+-- checkins is write-locked while the indexes build, deploy off-peak.
+
+-- The old check-in race could leave several open checkins per user, keep the newest
+UPDATE checkins c SET checkout_time = now(), updated_at = now()
+WHERE c.checkout_time IS NULL
+  AND EXISTS (SELECT 1 FROM checkins newer
+              WHERE newer.user_id = c.user_id AND newer.checkout_time IS NULL AND newer.id > c.id);
+
+-- One active checkin per user, also serves "active checkins of a user"
+CREATE UNIQUE INDEX IF NOT EXISTS ux_checkins_active_user ON checkins (user_id) WHERE checkout_time IS NULL;
+-- who is at a venue / occupancy rebuild, index-only for the occupancy count
+CREATE INDEX IF NOT EXISTS idx_checkins_venue_active ON checkins (venue_id) INCLUDE (user_id, checkin_time)
+    WHERE checkout_time IS NULL;
+-- cooldown: latest checkin of a user at a venue
+CREATE INDEX IF NOT EXISTS idx_checkins_user_venue_time ON checkins (user_id, venue_id, checkin_time DESC);
+-- history keyset paging
+CREATE INDEX IF NOT EXISTS idx_checkins_user_time ON checkins (user_id, checkin_time DESC, id DESC);
+-- expiry sweep and expiry wheel reload, only open checkins
+CREATE INDEX IF NOT EXISTS idx_checkins_active_time ON checkins (checkin_time) INCLUDE (venue_id, user_id)
+    WHERE checkout_time IS NULL;
+-- trending rebuild
+CREATE INDEX IF NOT EXISTS idx_checkins_checkin_time ON checkins (checkin_time) INCLUDE (venue_id);
+
+-- outbox relay (pending rows only) and purge (published rows only)
+DROP INDEX IF EXISTS idx_checkin_events_unpublished;
+CREATE INDEX IF NOT EXISTS idx_checkin_events_pending ON checkin_events (id) WHERE published_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_checkin_events_published ON checkin_events (published_at) WHERE published_at IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_venues_category ON venues (category);
+CREATE INDEX IF NOT EXISTS idx_venues_lat_lon ON venues (latitude, longitude);
+CREATE INDEX IF NOT EXISTS idx_users_username ON users (username);
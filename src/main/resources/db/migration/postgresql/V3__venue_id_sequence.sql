@@ -0,0 +1,13 @@
+-- Venue ids come from a sequence instead of IDENTITY so Hibernate can batch inserts
+-- (bulk venue import). INCREMENT BY matches the allocationSize on Venue.id: each
+-- nextval hands the app the 50 ids ending at the returned value. Keep in step with h2/V3.
+
+CREATE SEQUENCE IF NOT EXISTS venues_seq INCREMENT BY 50;
+
+-- first block starts right after the highest existing id
+SELECT setval('venues_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM venues), false);
+
+-- plain SQL inserts draw from the same sequence so they can't collide with Hibernate's blocks
+ALTER TABLE venues ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE venues ALTER COLUMN id SET DEFAULT nextval('venues_seq');
+ALTER SEQUENCE venues_seq OWNED BY venues.id;
@@ -0,0 +1,14 @@
+-- Checkin and outbox event ids come from sequences (like venues in V3) so a batch
+-- check-in inserts its rows as JDBC batches. Keep in step with h2/V4.
+
+CREATE SEQUENCE IF NOT EXISTS checkins_seq INCREMENT BY 50;
+SELECT setval('checkins_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM checkins), false);
+ALTER TABLE checkins ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE checkins ALTER COLUMN id SET DEFAULT nextval('checkins_seq');
+ALTER SEQUENCE checkins_seq OWNED BY checkins.id;
+
+CREATE SEQUENCE IF NOT EXISTS checkin_events_seq INCREMENT BY 50;
+SELECT setval('checkin_events_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM checkin_events), false);
+ALTER TABLE checkin_events ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE checkin_events ALTER COLUMN id SET DEFAULT nextval('checkin_events_seq');
+ALTER SEQUENCE checkin_events_seq OWNED BY checkin_events.id;
@@ -0,0 +1,8 @@
+-- Indexes for loading CheckinSessionRegistry sessions. Postgres only, there is no h2/V5:
+-- on H2 idx_checkins_user_active (user_id, checkout_time) already serves the per-user
+-- load and idx_checkins_active_time (checkout_time, checkin_time) the warm-up.
+
+-- sessions of a user: their open checkin plus the ones closed inside the cooldown
+CREATE INDEX IF NOT EXISTS idx_checkins_user_checkout ON checkins (user_id, checkout_time);
+-- startup warm-up: everything checked out inside the cooldown window
+CREATE INDEX IF NOT EXISTS idx_checkins_checkout_time ON checkins (checkout_time) WHERE checkout_time IS NOT NULL;
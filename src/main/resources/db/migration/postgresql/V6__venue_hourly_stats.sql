@@ -0,0 +1,16 @@
+-- Per venue, per hour check-in rollups for GET /api/venues/{id}/stats, kept by
+-- VenueStatsRollup. No foreign key, like checkin_events: rows are history and
+-- outlive the venue. Keep in step with h2/V6.
+
+CREATE TABLE venue_hourly_stats (
+    venue_id BIGINT NOT NULL,
+    hour_start TIMESTAMP(6) NOT NULL,
+    arrivals INTEGER NOT NULL,
+    departures INTEGER NOT NULL,
+    peak_occupancy INTEGER NOT NULL,
+    dwell_seconds BIGINT NOT NULL,
+    PRIMARY KEY (venue_id, hour_start)
+);
+
+-- backfill replaces whole hours across venues, startup catch-up looks for the latest one
+CREATE INDEX idx_venue_hourly_stats_hour ON venue_hourly_stats (hour_start);
@@ -0,0 +1,21 @@
+-- Cold tier for checkins: CheckinArchiver moves rows closed more than
+-- outside.checkin.archive.after-days ago here, so the hot table and its indexes
+-- only hold recent data. Rows are never updated. No foreign keys, like
+-- checkin_events, archived history outlives users and venues. Keep in step with h2/V7.
+
+-- Append only: pack pages full, and only two indexes to keep it small
+CREATE TABLE IF NOT EXISTS checkins_archive (
+    id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    venue_id BIGINT NOT NULL,
+    checkin_time TIMESTAMP(6) NOT NULL,
+    checkout_time TIMESTAMP(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+) WITH (fillfactor = 100);
+
+-- history keyset paging (same order as idx_checkins_user_time)
+CREATE INDEX IF NOT EXISTS idx_checkins_archive_user_time ON checkins_archive (user_id, checkin_time DESC, id DESC)
+    WITH (fillfactor = 100);
+-- venue stats backfill, a BRIN index is enough since rows arrive roughly in checkin_time order
+CREATE INDEX IF NOT EXISTS idx_checkins_archive_checkin_time ON checkins_archive USING BRIN (checkin_time);
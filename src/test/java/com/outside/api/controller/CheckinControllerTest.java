@@ -6,17 +6,20 @@ import com.outside.api.model.Venue;
 import com.outside.api.repository.CheckinRepository;
 import com.outside.api.repository.UserRepository;
 import com.outside.api.repository.VenueRepository;
+import com.outside.api.service.CheckinEventRelay;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
@@ -50,7 +53,13 @@ class CheckinControllerTest {
     private CheckinRepository checkinRepository;
 
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CheckinEventRelay eventRelay;
 
     // Test data that gets created fresh for each test
     private User testUser;
@@ -210,6 +219,69 @@ class CheckinControllerTest {
                 .andExpect(jsonPath("$.error").value(containsString("Cooldown")));
     }
 
+    @Test
+    void testCheckinUser_CheckinClosedBehindTheRegistrysBack() throws Exception {
+        String requestBody = String.format("{\"userId\": %d, \"venueId\": %d}",
+                testUser.getId(), testVenue.getId());
+        mockMvc.perform(post("/api/checkins")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isCreated());
+
+        // closed an hour ago straight in the database, the session table still has it open
+        closeCheckinsInDatabase(testUser);
+        mockMvc.perform(post("/api/checkins")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isCreated());
+
+        // same for batch check-ins
+        closeCheckinsInDatabase(testUser);
+        mockMvc.perform(post("/api/checkins/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + requestBody + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.results[0].checkin.venueId").value(testVenue.getId()));
+    }
+
+    @Test
+    void testCheckinUser_RefusedOnAStandby() throws Exception {
+        // another instance holds the relay lease
+        jdbcTemplate.update("UPDATE checkin_event_relay_lease SET owner = ?, expires_at = ?",
+                "other-host:1", LocalDateTime.now().plusSeconds(30));
+        eventRelay.holdLease();
+
+        String requestBody = String.format("{\"userId\": %d, \"venueId\": %d}",
+                testUser.getId(), testVenue.getId());
+        try {
+            mockMvc.perform(post("/api/checkins")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+            mockMvc.perform(post("/api/checkins/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[" + requestBody + "]"))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            // released again, this instance takes it back
+            jdbcTemplate.update("UPDATE checkin_event_relay_lease SET expires_at = ?", LocalDateTime.now());
+            eventRelay.holdLease();
+        }
+
+        mockMvc.perform(post("/api/checkins")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isCreated());
+    }
+
+    private void closeCheckinsInDatabase(User user) {
+        checkinRepository.flush(); // the new checkin's INSERT is still pending in the test transaction
+        jdbcTemplate.update("UPDATE checkins SET checkin_time = ?, checkout_time = ? WHERE user_id = ?",
+                LocalDateTime.now().minusMinutes(90), LocalDateTime.now().minusMinutes(60), user.getId());
+    }
+
     @Test
     void testCheckinUser_DifferentVenue_AutoCheckout() throws Exception {
         // Checkin at first venue
@@ -313,7 +385,141 @@ class CheckinControllerTest {
 
         mockMvc.perform(get("/api/checkins/user/" + testUser.getId()))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(2)))
-                .andExpect(jsonPath("$[0].userId").value(testUser.getId()));
+                .andExpect(jsonPath("$.checkins", hasSize(2)))
+                .andExpect(jsonPath("$.checkins[0].userId").value(testUser.getId()))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    void testGetUserCheckinHistory_CursorPagination() throws Exception {
+        for (int i = 3; i >= 1; i--) {
+            Checkin checkin = new Checkin();
+            checkin.setUser(testUser);
+            checkin.setVenue(testVenue);
+            checkin.setCheckinTime(LocalDateTime.now().minusHours(i));
+            checkin.setCheckoutTime(LocalDateTime.now().minusHours(i).plusMinutes(30));
+            checkinRepository.save(checkin);
+        }
+
+        // First page: newest checkin plus a cursor for the rest
+        String firstPage = mockMvc.perform(get("/api/checkins/user/" + testUser.getId()).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.checkins", hasSize(2)))
+                .andExpect(jsonPath("$.next").exists())
+                .andReturn().getResponse().getContentAsString();
+        String next = com.jayway.jsonpath.JsonPath.read(firstPage, "$.next");
+
+        // Second page: the one remaining (oldest) checkin and no further cursor
+        mockMvc.perform(get("/api/checkins/user/" + testUser.getId())
+                        .param("limit", "2")
+                        .param("cursor", next))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.checkins", hasSize(1)))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    void testGetUserCheckinHistory_InvalidCursor() throws Exception {
+        mockMvc.perform(get("/api/checkins/user/" + testUser.getId()).param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid cursor"));
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setEmail(username + "@example.com");
+        user.setUsername(username);
+        user.setPasswordHash("not-a-real-hash");
+        return userRepository.save(user);
+    }
+
+    private Checkin createCheckin(User user, Venue venue, LocalDateTime checkinTime, LocalDateTime checkoutTime) {
+        Checkin checkin = new Checkin();
+        checkin.setUser(user);
+        checkin.setVenue(venue);
+        checkin.setCheckinTime(checkinTime);
+        checkin.setCheckoutTime(checkoutTime);
+        return checkinRepository.save(checkin);
+    }
+
+    @Test
+    void testBatchCheckin_OneResultPerItem() throws Exception {
+        Checkin moving = createCheckin(testUser, testVenue, LocalDateTime.now().minusMinutes(40), null);
+        User newcomer = createUser("newcomer");
+        User coolingDown = createUser("coolingdown");
+        createCheckin(coolingDown, testVenue, LocalDateTime.now().minusMinutes(30), LocalDateTime.now().minusMinutes(5));
+        User alreadyThere = createUser("alreadythere");
+        createCheckin(alreadyThere, testVenue2, LocalDateTime.now().minusMinutes(10), null);
+        User lost = createUser("lost");
+
+        String requestBody = String.format("[" +
+                "{\"userId\": %d, \"venueId\": %d}," +
+                "{\"userId\": %d, \"venueId\": %d}," +
+                "{\"userId\": %d, \"venueId\": %d}," +
+                "{\"userId\": %d, \"venueId\": %d}," +
+                "{\"userId\": 99999, \"venueId\": %d}," +
+                "{\"userId\": %d, \"venueId\": 99999}," +
+                "{\"userId\": %d, \"venueId\": %d}," +
+                "{\"userId\": %d}]",
+                testUser.getId(), testVenue2.getId(),
+                newcomer.getId(), testVenue.getId(),
+                coolingDown.getId(), testVenue.getId(),
+                alreadyThere.getId(), testVenue2.getId(),
+                testVenue.getId(),
+                lost.getId(),
+                testUser.getId(), testVenue.getId(),
+                lost.getId());
+
+        mockMvc.perform(post("/api/checkins/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.failed").value(6))
+                .andExpect(jsonPath("$.results", hasSize(8)))
+                .andExpect(jsonPath("$.results[0].checkin.venueName").value("Another Bar"))
+                .andExpect(jsonPath("$.results[1].checkin.username").value("newcomer"))
+                .andExpect(jsonPath("$.results[2].error").value(containsString("Cooldown")))
+                .andExpect(jsonPath("$.results[3].error").value("User is already checked in to this venue"))
+                .andExpect(jsonPath("$.results[4].error").value("User not found"))
+                .andExpect(jsonPath("$.results[5].error").value("Venue not found"))
+                .andExpect(jsonPath("$.results[6].error").value("User appears more than once in this batch"))
+                .andExpect(jsonPath("$.results[7].index").value(7))
+                .andExpect(jsonPath("$.results[7].error").value("Venue ID is required"));
+
+        // the user who moved venues was checked out of the first one
+        assert checkinRepository.findById(moving.getId()).get().getCheckoutTime() != null;
+    }
+
+    @Test
+    void testBatchCheckout_OneResultPerItem() throws Exception {
+        Checkin active = createCheckin(testUser, testVenue, LocalDateTime.now().minusMinutes(40), null);
+        Checkin closed = createCheckin(createUser("closed"), testVenue, LocalDateTime.now().minusHours(1), LocalDateTime.now());
+
+        mockMvc.perform(put("/api/checkins/batch/checkout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(String.format("[%d, %d, 99999, %d]", active.getId(), closed.getId(), active.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.results[0].checkin.id").value(active.getId()))
+                .andExpect(jsonPath("$.results[0].checkin.checkoutTime").exists())
+                .andExpect(jsonPath("$.results[1].error").value("User already checked out from this venue"))
+                .andExpect(jsonPath("$.results[2].error").value("Checkin not found"))
+                .andExpect(jsonPath("$.results[3].error").value("Checkin appears more than once in this batch"));
+    }
+
+    @Test
+    void testBatchCheckin_SizeLimits() throws Exception {
+        mockMvc.perform(post("/api/checkins/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Batch must have between 1 and 100 items"));
+
+        String tooMany = "[" + String.join(",", Collections.nCopies(101, "1")) + "]";
+        mockMvc.perform(put("/api/checkins/batch/checkout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(tooMany))
+                .andExpect(status().isBadRequest());
     }
 }
@@ -0,0 +1,227 @@
+package com.outside.api.controller;
+
+import com.outside.api.model.Checkin;
+import com.outside.api.model.User;
+import com.outside.api.model.Venue;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import com.outside.api.repository.VenueRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Makes sure the checkin list endpoints stay at one SQL statement per request,
+ * that check-in rules are decided without querying checkins once a user's
+ * session is loaded, that a batch check-in costs the same number of
+ * statements however many users are in it, and that venues check-ins look
+ * up come out of VenueCache without any
+ *
+ * Uses Hibernate statistics (turned on in test application.properties) to count
+ * prepared statements. If someone goes back to loading Checkin entities and
+ * walking getUser()/getVenue(), the count goes up and these tests fail.
+ * The outbox relay is slowed down so its polling doesn't show up in the count.
+ */
+@SpringBootTest(properties = "outside.events.relay-interval-ms=3600000")
+@AutoConfigureMockMvc
+@Transactional
+class CheckinQueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Venue testVenue;
+    private User firstUser;
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        checkinRepository.deleteAll();
+        userRepository.deleteAll();
+        venueRepository.deleteAll();
+
+        testVenue = new Venue();
+        testVenue.setName("Test Bar");
+        testVenue.setLatitude(41.8781);
+        testVenue.setLongitude(-87.6298);
+        testVenue = venueRepository.save(testVenue);
+
+        Venue otherVenue = new Venue();
+        otherVenue.setName("Another Bar");
+        otherVenue.setLatitude(41.8802);
+        otherVenue.setLongitude(-87.6324);
+        otherVenue = venueRepository.save(otherVenue);
+
+        //several users at the venue plus some history, so N+1 loading would show up
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setUsername("user" + i);
+            user.setPasswordHash("not-a-real-hash");
+            user = userRepository.save(user);
+            users.add(user);
+            if (firstUser == null) {
+                firstUser = user;
+            }
+
+            Checkin old = new Checkin();
+            old.setUser(user);
+            old.setVenue(otherVenue);
+            old.setCheckinTime(LocalDateTime.now().minusHours(3));
+            old.setCheckoutTime(LocalDateTime.now().minusHours(2));
+            checkinRepository.save(old);
+
+            Checkin active = new Checkin();
+            active.setUser(user);
+            active.setVenue(testVenue);
+            active.setCheckinTime(LocalDateTime.now().minusMinutes(30));
+            checkinRepository.save(active);
+        }
+
+        Venue thirdVenue = new Venue();
+        thirdVenue.setName("Third Bar");
+        thirdVenue.setLatitude(41.8822);
+        thirdVenue.setLongitude(-87.6344);
+        venueRepository.save(thirdVenue);
+
+        //write everything out and empty the persistence context so nothing is served from it
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testVenueCacheHit_NoStatements() throws Exception {
+        //misses load and fill the cache
+        mockMvc.perform(get("/api/venues/" + testVenue.getId())).andExpect(status().isOk());
+        mockMvc.perform(get("/api/venues/category/cache-test")).andExpect(status().isOk());
+        statistics.clear();
+
+        mockMvc.perform(get("/api/venues/" + testVenue.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Test Bar"));
+        mockMvc.perform(get("/api/venues/category/cache-test")).andExpect(status().isOk());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testGetActiveCheckinsAtVenue_SingleStatement() throws Exception {
+        mockMvc.perform(get("/api/checkins/venue/" + testVenue.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(5))
+                .andExpect(jsonPath("$.checkins", hasSize(5)));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testGetUserCheckinHistory_SingleStatement() throws Exception {
+        //a page of recent checkins comes from the hot table alone
+        mockMvc.perform(get("/api/checkins/user/" + firstUser.getId()).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.checkins", hasSize(1)));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testGetUserCheckinHistory_ShortHistoryAlsoReadsTheArchive() throws Exception {
+        //the page isn't full, so older checkins may be archived: one statement per tier
+        mockMvc.perform(get("/api/checkins/user/" + firstUser.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.checkins", hasSize(2)));
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testCheckin_RefusalRechecksOnlyTheUsersSession() throws Exception {
+        String requestBody = String.format("{\"userId\": %d, \"venueId\": %d}",
+                firstUser.getId(), testVenue.getId());
+
+        //firstUser is already checked in at testVenue: the user row lock, plus one reload of
+        //their session before refusing (the rules themselves are checked in memory)
+        mockMvc.perform(post("/api/checkins")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("User is already checked in to this venue"));
+        statistics.clear();
+        mockMvc.perform(post("/api/checkins")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testBatchCheckin_StatementsDoNotGrowWithBatchSize() throws Exception {
+        Venue target = venueRepository.findAll().stream()
+                .filter(venue -> venue.getName().equals("Third Bar")).findFirst().get();
+
+        //first call also pulls the id blocks from the sequences, keep it out of the comparison
+        batchCheckin(users.subList(0, 1), target);
+        statistics.clear();
+        batchCheckin(users.subList(1, 2), target);
+        long oneUser = statistics.getPrepareStatementCount();
+        statistics.clear();
+        batchCheckin(users.subList(2, 5), target);
+        long threeUsers = statistics.getPrepareStatementCount();
+
+        //every user also gets checked out of testVenue on the way
+        assertEquals(oneUser, threeUsers);
+    }
+
+    private void batchCheckin(List<User> group, Venue venue) throws Exception {
+        List<String> items = new ArrayList<>();
+        for (User user : group) {
+            items.add(String.format("{\"userId\": %d, \"venueId\": %d}", user.getId(), venue.getId()));
+        }
+        mockMvc.perform(post("/api/checkins/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + String.join(",", items) + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(group.size()));
+        entityManager.flush();
+    }
+}
@@ -0,0 +1,76 @@
+package com.outside.api.controller;
+
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that /actuator/prometheus exposes the metrics MetricsConfig sets up
+ *
+ * Spring Boot swaps in a no-export registry for tests by default,
+ * @AutoConfigureObservability keeps the real Prometheus one.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @AfterEach
+    void cleanUp() {
+        checkinRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testPrometheusScrape_HasHotPathMetrics() throws Exception {
+        MvcResult register = mockMvc.perform(post("/api/users/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"metrics@example.com\", \"username\": \"metrics\", \"password\": \"password123\"}"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(register)).andExpect(status().isCreated());
+        mockMvc.perform(get("/api/venues/nearby?lat=41.88&lon=-87.63&radiusMi=1")).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        //request latency with histogram buckets
+        assertContains(scrape, "http_server_requests_seconds_bucket{");
+        assertContains(scrape, "uri=\"/api/venues/nearby\"");
+        //@Timed services
+        assertContains(scrape, "outside_service_seconds_bucket{class=\"com.outside.api.service.VenueService\"");
+        assertContains(scrape, "method=\"getVenuesNearby\"");
+        assertContains(scrape, "method=\"registerUser\"");
+        //password hashing, connection pool wait, Hibernate statements
+        assertContains(scrape, "outside_auth_hash_seconds_count{operation=\"encode\"}");
+        assertContains(scrape, "hikaricp_connections_acquire_seconds_bucket");
+        assertContains(scrape, "hibernate_statements_total");
+    }
+
+    private static void assertContains(String scrape, String expected) {
+        assertTrue(scrape.contains(expected), "scrape has no " + expected);
+    }
+}
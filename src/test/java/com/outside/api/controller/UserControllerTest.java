@@ -0,0 +1,157 @@
+package com.outside.api.controller;
+
+import com.outside.api.model.User;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import com.outside.api.service.PasswordHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests for UserController
+ *
+ * Register/login are async (hashing runs on the PasswordHasher pool), so each
+ * call is started, then dispatched again once the future completes. The save
+ * happens on the hashing thread, outside any test transaction, so this class
+ * isn't @Transactional and cleans up after itself instead.
+ *
+ * PasswordHasher is a spy: real hashing unless a test makes it fail.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @MockitoSpyBean
+    private PasswordHasher passwordHasher;
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        checkinRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private ResultActions postAsync(String url, String body) throws Exception {
+        MvcResult started = mockMvc.perform(post(url)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
+    @Test
+    void testRegisterAndLogin_Success() throws Exception {
+        postAsync("/api/users/register",
+                "{\"email\": \"new@example.com\", \"username\": \"newuser\", \"password\": \"password123\"}")
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.username").value("newuser"))
+                .andExpect(jsonPath("$.passwordHash").doesNotExist());
+
+        postAsync("/api/users/login", "{\"email\": \"new@example.com\", \"password\": \"password123\"}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("new@example.com"));
+    }
+
+    @Test
+    void testLogin_WrongPassword() throws Exception {
+        postAsync("/api/users/register",
+                "{\"email\": \"new@example.com\", \"username\": \"newuser\", \"password\": \"password123\"}")
+                .andExpect(status().isCreated());
+
+        postAsync("/api/users/login", "{\"email\": \"new@example.com\", \"password\": \"wrongpassword\"}")
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("Invalid email or password"));
+    }
+
+    @Test
+    void testRegister_ShortPasswordRejectedBeforeHashing() throws Exception {
+        postAsync("/api/users/register",
+                "{\"email\": \"new@example.com\", \"username\": \"newuser\", \"password\": \"short\"}")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Password must be at least 8 characters"));
+    }
+
+    @Test
+    void testLogin_RehashesLegacyHash() throws Exception {
+        // Hash stored before the delegating encoder: plain bcrypt, no {id} prefix
+        User legacy = new User();
+        legacy.setEmail("legacy@example.com");
+        legacy.setUsername("legacy");
+        legacy.setPasswordHash(new BCryptPasswordEncoder(4).encode("password123"));
+        legacy = userRepository.save(legacy);
+
+        postAsync("/api/users/login", "{\"email\": \"legacy@example.com\", \"password\": \"password123\"}")
+                .andExpect(status().isOk());
+
+        // The rehash is saved in the background, give it a moment
+        String hash = null;
+        for (int i = 0; i < 50; i++) {
+            hash = userRepository.findById(legacy.getId()).get().getPasswordHash();
+            if (hash.startsWith("{bcrypt}")) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertTrue(hash.startsWith("{bcrypt}"), "hash was not upgraded: " + hash);
+
+        // and the new hash still logs in
+        postAsync("/api/users/login", "{\"email\": \"legacy@example.com\", \"password\": \"password123\"}")
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testRegister_HashRejectedInsideFuture_ServiceUnavailable() throws Exception {
+        doReturn(CompletableFuture.failedFuture(new RejectedExecutionException("pool is full")))
+                .when(passwordHasher).encode(anyString());
+
+        postAsync("/api/users/register",
+                "{\"email\": \"new@example.com\", \"username\": \"newuser\", \"password\": \"password123\"}")
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").value("Server is busy, please try again"));
+    }
+
+    @Test
+    void testRegister_HashFailure_InternalServerErrorNotConflict() throws Exception {
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("encoder broke")))
+                .when(passwordHasher).encode(anyString());
+
+        postAsync("/api/users/register",
+                "{\"email\": \"new@example.com\", \"username\": \"newuser\", \"password\": \"password123\"}")
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.error").value("Internal server error"));
+    }
+}
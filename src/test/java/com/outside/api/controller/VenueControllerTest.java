@@ -0,0 +1,352 @@
+package com.outside.api.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import com.outside.api.model.Checkin;
+import com.outside.api.model.CheckinEvent;
+import com.outside.api.model.User;
+import com.outside.api.model.Venue;
+import com.outside.api.model.VenueHourlyStats;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import com.outside.api.repository.VenueHourlyStatsRepository;
+import com.outside.api.repository.VenueRepository;
+import com.outside.api.service.VenueLiveFeed;
+import com.outside.api.service.VenueOccupancyTracker;
+import com.outside.api.service.VenueService;
+import com.outside.api.service.VenueSpatialIndex;
+import com.outside.api.service.VenueTrendingTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests for VenueController
+ *
+ * Same setup as CheckinControllerTest: full context, MockMvc, and a rolled back
+ * transaction per test.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class VenueControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VenueHourlyStatsRepository statsRepository;
+
+    @Autowired
+    private VenueLiveFeed liveFeed;
+
+    @Autowired
+    private VenueTrendingTracker trendingTracker;
+
+    @Autowired
+    private VenueSpatialIndex spatialIndex;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private VenueOccupancyTracker occupancyTracker;
+
+    @BeforeEach
+    void setUp() {
+        checkinRepository.deleteAll();
+        userRepository.deleteAll();
+        venueRepository.deleteAll();
+
+        for (int i = 1; i <= 3; i++) {
+            Venue venue = new Venue();
+            venue.setName("Bar " + i);
+            venue.setLatitude(41.87 + i * 0.001);
+            venue.setLongitude(-87.62);
+            venue.setCategory("bar");
+            venue.setDescription("A long description that map clients don't need");
+            venueRepository.save(venue);
+        }
+    }
+
+    @Test
+    void testGetAllVenues_KeysetPagination() throws Exception {
+        String firstPage = mockMvc.perform(get("/api/venues").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.venues", hasSize(2)))
+                .andExpect(jsonPath("$.venues[0].name").value("Bar 1"))
+                .andExpect(jsonPath("$.next").exists())
+                .andReturn().getResponse().getContentAsString();
+        Number next = JsonPath.read(firstPage, "$.next");
+
+        mockMvc.perform(get("/api/venues").param("limit", "2").param("after", next.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.venues", hasSize(1)))
+                .andExpect(jsonPath("$.venues[0].name").value("Bar 3"))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    void testGetAllVenues_OffsetPagination() throws Exception {
+        mockMvc.perform(get("/api/venues").param("limit", "2").param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.venues", hasSize(1)))
+                .andExpect(jsonPath("$.venues[0].name").value("Bar 3"));
+    }
+
+    @Test
+    void testGetAllVenues_SparseFields() throws Exception {
+        mockMvc.perform(get("/api/venues").param("fields", "name,latitude,longitude"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.venues", hasSize(3)))
+                .andExpect(jsonPath("$.venues[0].id").exists())  // id always comes back for paging
+                .andExpect(jsonPath("$.venues[0].name").value("Bar 1"))
+                .andExpect(jsonPath("$.venues[0].latitude").exists())
+                .andExpect(jsonPath("$.venues[0].description").doesNotExist());
+    }
+
+    @Test
+    void testGetAllVenues_UnknownField() throws Exception {
+        mockMvc.perform(get("/api/venues").param("fields", "name,passwordHash"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown venue field: passwordHash"));
+    }
+
+    @Test
+    void testVenueCache_HandsOutCopies() {
+        Long venueId = venueRepository.findAll().get(0).getId();
+
+        venueService.getVenuebyId(venueId).orElseThrow().setName("Renamed by a caller");
+        assertEquals("Bar 1", venueService.getVenuebyId(venueId).orElseThrow().getName());
+
+        List<Venue> bars = venueService.getVenuesByCategory("bar");
+        assertThrows(UnsupportedOperationException.class, () -> bars.add(new Venue()));
+    }
+
+    @Test
+    void testOccupancy_RebuiltFromActiveCheckins() throws Exception {
+        List<Venue> venues = venueRepository.findAll();
+        Venue busy = venues.get(0);
+        Venue quiet = venues.get(1);
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setEmail("occupant" + i + "@example.com");
+            user.setUsername("occupant" + i);
+            user.setPasswordHash("not-a-real-hash");
+            user = userRepository.save(user);
+
+            Checkin checkin = new Checkin();
+            checkin.setUser(user);
+            checkin.setVenue(i < 2 ? busy : quiet);
+            checkin.setCheckinTime(LocalDateTime.now().minusMinutes(30));
+            //the one at the quiet venue already left
+            checkin.setCheckoutTime(i < 2 ? null : LocalDateTime.now().minusMinutes(5));
+            checkinRepository.save(checkin);
+        }
+        //written straight to the table, so count them the way startup does
+        occupancyTracker.rebuild();
+
+        mockMvc.perform(get("/api/venues/" + busy.getId() + "/occupancy"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.venueId").value(busy.getId()))
+                .andExpect(jsonPath("$.count").value(2));
+        mockMvc.perform(get("/api/venues/occupancy")
+                        .param("ids", busy.getId() + "," + quiet.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['" + busy.getId() + "']").value(2))
+                .andExpect(jsonPath("$['" + quiet.getId() + "']").value(0));
+    }
+
+    @Test
+    void testLiveFeed_SnapshotThenCoalescedDelta() throws Exception {
+        Long venueId = venueRepository.findAll().get(0).getId();
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/venues/" + venueId + "/live"))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+        assertTrue(response.getContentAsString().contains("event:snapshot"));
+
+        //checkin 1 comes and goes inside one flush window, only checkin 2 should be reported
+        LocalDateTime now = LocalDateTime.now();
+        liveFeed.onCheckinEvent(CheckinEvent.of(CheckinEvent.Type.CHECKED_IN, 1001L, 1L, venueId, now));
+        liveFeed.onCheckinEvent(CheckinEvent.of(CheckinEvent.Type.CHECKED_OUT, 1001L, 1L, venueId, now));
+        liveFeed.onCheckinEvent(CheckinEvent.of(CheckinEvent.Type.CHECKED_IN, 1002L, 2L, venueId, now));
+        liveFeed.flush();
+
+        //sends happen on the feed's sender threads
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!response.getContentAsString().contains("event:delta") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        String body = response.getContentAsString();
+        assertTrue(body.contains("event:delta"));
+        assertTrue(body.contains("\"checkinId\":1002"));
+        assertFalse(body.contains("1001"));
+    }
+
+    @Test
+    void testLiveFeed_UnknownVenue() throws Exception {
+        mockMvc.perform(get("/api/venues/999999/live"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Venue not found"));
+    }
+
+    @Test
+    void testTrending_RanksNearbyVenuesByRecentCheckins() throws Exception {
+        //saved through the repository, so the index doesn't know about them yet
+        List<Venue> venues = venueRepository.findAll();
+        venues.forEach(spatialIndex::put);
+        LocalDateTime now = LocalDateTime.now();
+        trendingTracker.record(venues.get(0).getId(), now);
+        trendingTracker.record(venues.get(1).getId(), now);
+        trendingTracker.record(venues.get(1).getId(), now);
+
+        mockMvc.perform(get("/api/venues/trending")
+                        .param("lat", "41.87").param("lon", "-87.62").param("radiusMi", "5")
+                        .param("category", "BAR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].venue.name").value("Bar 2"))
+                .andExpect(jsonPath("$[0].last15Minutes").value(2))
+                .andExpect(jsonPath("$[1].venue.name").value("Bar 1"));
+    }
+
+    @Test
+    void testTrending_UnknownWindow() throws Exception {
+        mockMvc.perform(get("/api/venues/trending")
+                        .param("lat", "41.87").param("lon", "-87.62").param("radiusMi", "5")
+                        .param("window", "week"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    void testNearby_RadiusOutOfRange() throws Exception {
+        for (String radiusMi : List.of("0", "-1", "101", "NaN")) {
+            mockMvc.perform(get("/api/venues/nearby")
+                            .param("lat", "41.87").param("lon", "-87.62").param("radiusMi", radiusMi))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").exists());
+        }
+        mockMvc.perform(get("/api/venues/trending")
+                        .param("lat", "41.87").param("lon", "-87.62").param("radiusMi", "5000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    private void rollUp(Long venueId, LocalDateTime hourStart, int arrivals, int departures, int peak, long dwellSeconds) {
+        VenueHourlyStats hour = new VenueHourlyStats();
+        hour.setVenueId(venueId);
+        hour.setHourStart(hourStart);
+        hour.setArrivals(arrivals);
+        hour.setDepartures(departures);
+        hour.setPeakOccupancy(peak);
+        hour.setDwellSeconds(dwellSeconds);
+        statsRepository.save(hour);
+    }
+
+    @Test
+    void testStats_HourlyAndDaily() throws Exception {
+        Long venueId = venueRepository.findAll().get(0).getId();
+        LocalDateTime evening = LocalDateTime.of(2026, 3, 14, 20, 0);
+        rollUp(venueId, evening, 12, 4, 9, 4 * 1800);
+        rollUp(venueId, evening.plusHours(1), 3, 10, 11, 10 * 3600);
+
+        mockMvc.perform(get("/api/venues/" + venueId + "/stats")
+                        .param("from", "2026-03-14T00:00:00").param("to", "2026-03-15T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.granularity").value("hour"))
+                .andExpect(jsonPath("$.buckets", hasSize(2)))
+                .andExpect(jsonPath("$.buckets[0].start").value("2026-03-14T20:00:00"))
+                .andExpect(jsonPath("$.buckets[0].arrivals").value(12))
+                .andExpect(jsonPath("$.buckets[0].averageDwellMinutes").value(30.0))
+                .andExpect(jsonPath("$.buckets[1].peakOccupancy").value(11));
+
+        mockMvc.perform(get("/api/venues/" + venueId + "/stats")
+                        .param("from", "2026-03-01T00:00:00").param("to", "2026-04-01T00:00:00")
+                        .param("granularity", "day"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.buckets", hasSize(1)))
+                .andExpect(jsonPath("$.buckets[0].start").value("2026-03-14T00:00:00"))
+                .andExpect(jsonPath("$.buckets[0].arrivals").value(15))
+                .andExpect(jsonPath("$.buckets[0].departures").value(14))
+                .andExpect(jsonPath("$.buckets[0].peakOccupancy").value(11))
+                .andExpect(jsonPath("$.buckets[0].averageDwellMinutes").value(51.4));
+    }
+
+    @Test
+    void testStats_BadRequests() throws Exception {
+        Long venueId = venueRepository.findAll().get(0).getId();
+        mockMvc.perform(get("/api/venues/" + venueId + "/stats").param("granularity", "week"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Granularity must be one of hour, day"));
+        mockMvc.perform(get("/api/venues/" + venueId + "/stats")
+                        .param("from", "2026-03-15T00:00:00").param("to", "2026-03-14T00:00:00"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/venues/" + venueId + "/stats")
+                        .param("from", "2025-01-01T00:00:00").param("to", "2026-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/venues/999999/stats"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Venue not found"));
+    }
+
+    @Test
+    void testImportVenues_Csv() throws Exception {
+        String csv = "name,latitude,longitude,category\n" +
+                "Imported Bar,41.95,-87.66,bar\n" +
+                "Bar 1,41.871,-87.62,bar\n" +
+                "No Coordinates,,,bar\n";
+
+        mockMvc.perform(post("/api/venues/import").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows").value(3))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.duplicates").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(4))
+                .andExpect(jsonPath("$.errors[0].message").value("latitude and longitude are required"));
+
+        mockMvc.perform(get("/api/venues/search").param("query", "imported bar"))
+                .andExpect(jsonPath("$[0].name").value("Imported Bar"));
+    }
+
+    @Test
+    void testImportVenues_UnsupportedContentType() throws Exception {
+        mockMvc.perform(post("/api/venues/import").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isUnsupportedMediaType())
+                .andExpect(jsonPath("$.error").exists());
+
+        mockMvc.perform(post("/api/venues/import").contentType("text/csv").content("name,stars\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown venue column: stars"));
+    }
+}
@@ -0,0 +1,208 @@
+package com.outside.api.load;
+
+import com.outside.api.model.Checkin;
+import com.outside.api.model.User;
+import com.outside.api.model.Venue;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import com.outside.api.repository.VenueRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput load test for platform-thread vs virtual-thread request handling
+ *
+ * Not part of the normal build (tagged "load"). Run it once per mode and compare
+ * the printed requests/second:
+ *
+ *   mvn -Pload-test test
+ *   mvn -Pjava21,load-test test -Dspring.profiles.active=virtual-threads
+ *
+ * Clients hammer JDBC-backed endpoints (venue checkin list + user history) over
+ * real HTTP on a random port. Tune with -Dload.concurrency, -Dload.seconds and
+ * -Dload.dbLatencyMs (a sleep every time a connection is handed out, to mimic
+ * the round trip to a remote database, which is where blocking threads hurt).
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(ThroughputLoadTest.SlowDatabaseConfig.class)
+class ThroughputLoadTest {
+
+    /**
+     * Wraps the DataSource so every borrowed connection costs load.dbLatencyMs,
+     * H2 in memory is otherwise far faster than any real database
+     */
+    @TestConfiguration
+    static class SlowDatabaseConfig {
+        @Bean
+        static BeanPostProcessor slowDataSource(@Value("${load.dbLatencyMs:5}") long latencyMs) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource) || latencyMs <= 0) {
+                        return bean;
+                    }
+                    return Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                            (proxy, method, args) -> {
+                                try {
+                                    Object result = method.invoke(dataSource, args);
+                                    if (method.getName().equals("getConnection")) {
+                                        Thread.sleep(latencyMs);
+                                    }
+                                    return result;
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            });
+                }
+            };
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${load.concurrency:400}")
+    private int concurrency;
+
+    @Value("${load.seconds:20}")
+    private int seconds;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    private final List<Long> venueIds = new ArrayList<>();
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        checkinRepository.deleteAll();
+        userRepository.deleteAll();
+        venueRepository.deleteAll();
+
+        for (int v = 0; v < 20; v++) {
+            Venue venue = new Venue();
+            venue.setName("Load Venue " + v);
+            venue.setLatitude(41.88 + v * 0.001);
+            venue.setLongitude(-87.63);
+            venueIds.add(venueRepository.save(venue).getId());
+        }
+        for (int u = 0; u < 200; u++) {
+            User user = new User();
+            user.setEmail("load" + u + "@example.com");
+            user.setUsername("load" + u);
+            user.setPasswordHash("not-a-real-hash");
+            user = userRepository.save(user);
+            userIds.add(user.getId());
+
+            Checkin checkin = new Checkin();
+            checkin.setUser(user);
+            checkin.setVenue(venueRepository.getReferenceById(venueIds.get(u % venueIds.size())));
+            checkin.setCheckinTime(LocalDateTime.now().minusMinutes(u % 90));
+            checkinRepository.save(checkin);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        checkinRepository.deleteAll();
+        userRepository.deleteAll();
+        venueRepository.deleteAll();
+    }
+
+    @Test
+    void measureThroughput() throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        AtomicLong ok = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        //client side uses virtual threads when available so it is never the bottleneck
+        ExecutorService clients = newClientExecutor();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                int worker = i;
+                workers.add(clients.submit(() -> {
+                    long n = worker;
+                    while (System.nanoTime() < deadline) {
+                        String path = (n % 2 == 0)
+                                ? "/api/checkins/venue/" + venueIds.get((int) (n % venueIds.size()))
+                                : "/api/checkins/user/" + userIds.get((int) (n % userIds.size())) + "?limit=20";
+                        n++;
+                        try {
+                            HttpResponse<Void> response = client.send(
+                                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build(),
+                                    HttpResponse.BodyHandlers.discarding());
+                            (response.statusCode() == 200 ? ok : failed).incrementAndGet();
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        double throughput = ok.get() / (double) seconds;
+        System.out.printf("%n=== LOAD TEST [%s threads] concurrency=%d duration=%ds ===%n",
+                virtualThreads ? "virtual" : "platform", concurrency, seconds);
+        System.out.printf("ok=%d failed=%d throughput=%.1f req/s%n%n", ok.get(), failed.get(), throughput);
+
+        //failures are reported, not asserted: past the pool's connection-timeout shedding
+        //load is the intended behaviour, and the error rate is part of the comparison
+        assertTrue(ok.get() > 0, "no successful requests");
+    }
+
+    private static ExecutorService newClientExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
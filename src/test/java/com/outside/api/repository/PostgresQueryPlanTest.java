@@ -0,0 +1,84 @@
+package com.outside.api.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * QueryPlanTest against a real Postgres: the app starts on the db/migration/postgresql
+ * scripts (so every one of them runs and Hibernate validates the schema they build),
+ * then the same repository calls are EXPLAINed.
+ *
+ * The tables stay empty, so instead of seeding, seq scans are switched off for the
+ * EXPLAIN: Postgres only falls back to one when no index fits. Plans are generic
+ * (parameters unknown), which needs Postgres 16.
+ *
+ * Needs Docker, skipped without it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = {
+        QueryPlanTest.RECORD_SQL,
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect"
+})
+class PostgresQueryPlanTest extends QueryPlanTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private Flyway flyway;
+
+    //overrides drop QueryPlanTest's H2 seeding (SYSTEM_RANGE, ANALYZE) for this class
+    @Override
+    protected void seed() {
+    }
+
+    @Override
+    protected void cleanUp() {
+    }
+
+    @Test
+    void testMigrations_AllApplied() {
+        MigrationInfoService info = flyway.info();
+        assertEquals(0, info.pending().length);
+        assertEquals(info.all().length, info.applied().length);
+    }
+
+    @Override
+    protected String explain(String sql) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            return String.join("\n",
+                    jdbcTemplate.queryForList("EXPLAIN (GENERIC_PLAN) " + numbered(sql), String.class));
+        });
+    }
+
+    @Override
+    protected boolean usesTableScan(String plan) {
+        return plan.contains("Seq Scan");
+    }
+
+    //JDBC ? placeholders to the $1, $2, ... that EXPLAIN (GENERIC_PLAN) takes
+    private static String numbered(String sql) {
+        StringBuilder out = new StringBuilder(sql.length() + 16);
+        int n = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                out.append('$').append(++n);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,204 @@
+package com.outside.api.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs EXPLAIN on the SQL behind every hot repository query and fails if H2
+ * plans a full table scan, i.e. a migration index is missing or unusable.
+ *
+ * Each case calls the real repository method (in a transaction that is rolled
+ * back) and SqlRecorder, a Hibernate StatementInspector, captures the SQL it
+ * issues, so the plan is for exactly what Hibernate sends, parameters and all.
+ * A new hot query should get a line here too. Runs against the schema from
+ * db/migration/h2, PostgresQueryPlanTest does the same against db/migration/postgresql.
+ *
+ * Not @Transactional: H2's ANALYZE commits, so the rows are seeded once for the
+ * class and deleted again at the end.
+ */
+@SpringBootTest(properties = QueryPlanTest.RECORD_SQL)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    static final String RECORD_SQL = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+            + "com.outside.api.repository.QueryPlanTest$SqlRecorder";
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final LocalDateTime T1 = T0.plusDays(1);
+    private static final List<Long> IDS = List.of(1L, 2L, 3L);
+    private static final List<Long> USER_IDS = List.of(7L, 8L, 9L);
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private ArchivedCheckinRepository archivedCheckinRepository;
+
+    @Autowired
+    private VenueHourlyStatsRepository venueHourlyStatsRepository;
+
+    @Autowired
+    private CheckinEventRepository checkinEventRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeAll
+    protected void seed() {
+        //enough rows that the planner's cost estimates mean something
+        jdbcTemplate.update("INSERT INTO venues (name, latitude, longitude, category) " +
+                "SELECT 'Plan Bar ' || x, 41.8 + x / 1000.0, -87.6, CASE WHEN MOD(x, 2) = 0 THEN 'bar' ELSE 'club' END " +
+                "FROM SYSTEM_RANGE(1, 200)");
+        jdbcTemplate.update("INSERT INTO users (email, username, password_hash) " +
+                "SELECT 'plan' || x || '@example.com', 'plan' || x, 'hash' FROM SYSTEM_RANGE(1, 200)");
+        //ids aren't contiguous (venue ids come in sequence blocks), so pair rows up by rank
+        jdbcTemplate.update("INSERT INTO checkins (user_id, venue_id, checkin_time, checkout_time, created_at) " +
+                "SELECT u.id, v.id, " +
+                "DATEADD('MINUTE', -x, CURRENT_TIMESTAMP), DATEADD('MINUTE', -x + 30, CURRENT_TIMESTAMP), CURRENT_TIMESTAMP " +
+                "FROM SYSTEM_RANGE(1, 5000) " +
+                "JOIN (SELECT id, ROW_NUMBER() OVER (ORDER BY id) - 1 AS n FROM users WHERE username LIKE 'plan%') u " +
+                "ON u.n = MOD(x, 200) " +
+                "JOIN (SELECT id, ROW_NUMBER() OVER (ORDER BY id) - 1 AS n FROM venues WHERE name LIKE 'Plan Bar %') v " +
+                "ON v.n = MOD(x, 200)");
+        jdbcTemplate.update("INSERT INTO checkin_events (type, checkin_id, user_id, venue_id, occurred_at, published_at) " +
+                "SELECT 'CHECKED_IN', x, x, x, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, 5000)");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    protected void cleanUp() {
+        jdbcTemplate.update("DELETE FROM checkin_events");
+        jdbcTemplate.update("DELETE FROM checkins WHERE user_id IN (SELECT id FROM users WHERE username LIKE 'plan%')");
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'plan%'");
+        jdbcTemplate.update("DELETE FROM venues WHERE name LIKE 'Plan Bar %'");
+    }
+
+    Stream<Arguments> hotQueries() {
+        return Stream.of(
+            //CheckinRepository
+            hotQuery("active checkins at venue", () -> checkinRepository.findActiveCheckinDTOsByVenueId(3L)),
+            hotQuery("history first page", () -> checkinRepository.findCheckinDTOsByUserId(7L, PageRequest.of(0, 51))),
+            hotQuery("history next page",
+                () -> checkinRepository.findCheckinDTOsByUserIdBefore(7L, T0, 100L, PageRequest.of(0, 51))),
+            hotQuery("sessions of users", () -> checkinRepository.findSessionRowsByUserIds(USER_IDS, T0)),
+            hotQuery("active sessions", () -> checkinRepository.findActiveSessionRows()),
+            hotQuery("sessions checked out since", () -> checkinRepository.findSessionRowsCheckedOutSince(T0)),
+            hotQuery("lock active checkins of users", () -> checkinRepository.lockActiveCheckinsOfUsers(USER_IDS)),
+            hotQuery("checkins by ids", () -> checkinRepository.findCheckinDTOsByIds(IDS)),
+            hotQuery("lock expired checkins", () -> checkinRepository.lockExpiredCheckins(T0, 500)),
+            hotQuery("lock active checkins", () -> checkinRepository.lockActiveCheckins(IDS)),
+            hotQuery("active checkin times", () -> checkinRepository.findActiveCheckinTimes()),
+            hotQuery("active count per venue", () -> checkinRepository.countActiveCheckinsByVenue()),
+            hotQuery("checkin times since", () -> checkinRepository.findCheckinTimesSince(T0)),
+            hotQuery("bulk checkout", () -> checkinRepository.checkoutAll(IDS, T0)),
+            hotQuery("checkin spans", () -> checkinRepository.findCheckinSpans(T0, T1)),
+            hotQuery("checkin times by ids", () -> checkinRepository.findCheckinTimesByIds(IDS)),
+            hotQuery("lock checkins closed before", () -> checkinRepository.lockCheckinsClosedBefore(T0, 1000)),
+            //ArchivedCheckinRepository
+            hotQuery("copy checkins to archive", () -> archivedCheckinRepository.copyFromCheckins(IDS)),
+            hotQuery("archived history first page",
+                () -> archivedCheckinRepository.findCheckinDTOsByUserId(7L, PageRequest.of(0, 51))),
+            hotQuery("archived history next page",
+                () -> archivedCheckinRepository.findCheckinDTOsByUserIdBefore(7L, T0, 100L, PageRequest.of(0, 51))),
+            hotQuery("archived checkin spans", () -> archivedCheckinRepository.findCheckinSpans(T0, T1)),
+            //VenueHourlyStatsRepository
+            hotQuery("venue stats hours", () -> venueHourlyStatsRepository.findHours(3L, T0, T1)),
+            hotQuery("add to venue stats hour", () -> venueHourlyStatsRepository.addToHour(3L, T0, 1, 0, 1, 0L)),
+            hotQuery("delete venue stats hours", () -> venueHourlyStatsRepository.deleteHours(T0, T1)),
+            hotQuery("latest venue stats hour", () -> venueHourlyStatsRepository.findLatestHour()),
+            //CheckinEventRepository
+            hotQuery("unpublished events", () -> checkinEventRepository.findUnpublished(PageRequest.of(0, 500))),
+            hotQuery("purge published events", () -> checkinEventRepository.deletePublishedBefore(T0)),
+            //VenueRepository
+            hotQuery("venues by category", () -> venueRepository.findByCategory("bar")),
+            hotQuery("venues in bounds", () -> venueRepository.findVenuesInBounds(41.80, 41.81, -87.7, -87.5)),
+            hotQuery("venue keyset page", () -> venueRepository.findVenueFields(List.of("id", "name"), 50L, 0, 100)),
+            //UserRepository
+            hotQuery("lock users", () -> userRepository.findAllByIdForUpdate(USER_IDS)),
+            hotQuery("user by email", () -> userRepository.findByEmail("plan7@example.com")),
+            hotQuery("user by username", () -> userRepository.findByUsername("plan7"))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("hotQueries")
+    void testHotQuery_UsesAnIndex(String name, Runnable call) {
+        List<String> statements = transactionTemplate.execute(status -> {
+            //locks and bulk updates need a transaction, nothing they do is kept
+            status.setRollbackOnly();
+            return SqlRecorder.record(call);
+        });
+        assertFalse(statements.isEmpty(), name + " issued no SQL");
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertFalse(usesTableScan(plan), name + " falls back to a table scan:\n" + sql + "\n" + plan);
+        }
+    }
+
+    //H2 plans a statement with unset parameters, so the captured SQL can go in as is
+    protected String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+
+    protected boolean usesTableScan(String plan) {
+        return plan.contains("tableScan");
+    }
+
+    private static Arguments hotQuery(String name, Runnable call) {
+        return Arguments.of(name, call);
+    }
+
+    /**
+     * Hibernate StatementInspector that keeps the SQL issued on the current
+     * thread while SqlRecorder.record runs (the relay's statements on its own
+     * thread stay out)
+     */
+    public static class SqlRecorder implements StatementInspector {
+        private static final ThreadLocal<List<String>> RECORDED = new ThreadLocal<>();
+
+        static List<String> record(Runnable call) {
+            RECORDED.set(new ArrayList<>());
+            try {
+                call.run();
+                return RECORDED.get();
+            } finally {
+                RECORDED.remove();
+            }
+        }
+
+        @Override
+        public String inspect(String sql) {
+            List<String> recorded = RECORDED.get();
+            if (recorded != null) {
+                recorded.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.outside.api.service;
+
+import com.outside.api.dto.CheckinDTO;
+import com.outside.api.dto.CheckinPage;
+import com.outside.api.model.Checkin;
+import com.outside.api.model.User;
+import com.outside.api.model.Venue;
+import com.outside.api.repository.ArchivedCheckinRepository;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import com.outside.api.repository.VenueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration tests for CheckinArchiver and history reads across both tiers
+ * (archive after the default 90 days)
+ */
+@SpringBootTest
+@Transactional
+class CheckinArchiverTest {
+
+    @Autowired
+    private CheckinArchiver archiver;
+
+    @Autowired
+    private CheckinService checkinService;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private ArchivedCheckinRepository archivedCheckinRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    private User user;
+    private Venue venue;
+    //newest first, the order history comes back in
+    private final List<Long> expected = new ArrayList<>();
+    private Long archivedId;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setEmail("archive@example.com");
+        user.setUsername("archive");
+        user.setPasswordHash("not-a-real-hash");
+        user = userRepository.save(user);
+
+        venue = new Venue();
+        venue.setName("Archive Bar");
+        venue.setLatitude(41.8781);
+        venue.setLongitude(-87.6298);
+        venue = venueRepository.save(venue);
+
+        LocalDateTime now = LocalDateTime.now();
+        expected.add(visit(now.minusHours(1), null));
+        expected.add(visit(now.minusDays(1), now.minusDays(1).plusHours(1)));
+        expected.add(visit(now.minusDays(95), now.minusDays(95).plusHours(1)));
+        //started before the archived ones but closed recently, stays hot and sorts in between
+        expected.add(visit(now.minusDays(97), now.minusDays(10)));
+        archivedId = visit(now.minusDays(100), now.minusDays(100).plusHours(2));
+        expected.add(archivedId);
+    }
+
+    private Long visit(LocalDateTime checkinTime, LocalDateTime checkoutTime) {
+        Checkin checkin = new Checkin();
+        checkin.setUser(user);
+        checkin.setVenue(venue);
+        checkin.setCheckinTime(checkinTime);
+        checkin.setCheckoutTime(checkoutTime);
+        return checkinRepository.save(checkin).getId();
+    }
+
+    @Test
+    void testArchive_MovesOnlyLongClosedCheckins() {
+        assertTrue(archiver.archive() >= 2);
+
+        Set<Long> hot = checkinRepository.findAll().stream()
+                .filter(c -> c.getUser().getId().equals(user.getId()))
+                .map(Checkin::getId)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of(expected.get(0), expected.get(1), expected.get(3)), hot);
+        assertTrue(archivedCheckinRepository.existsById(expected.get(2)));
+        assertTrue(archivedCheckinRepository.existsById(archivedId));
+        assertEquals(0, archiver.archive());
+    }
+
+    @Test
+    void testHistory_PagesThroughBothTiers() {
+        archiver.archive();
+
+        for (int limit : new int[]{1, 2, 3, 10}) {
+            List<Long> seen = new ArrayList<>();
+            String cursor = null;
+            do {
+                CheckinPage page = checkinService.getCheckinHistoryForUser(user.getId(), cursor, limit);
+                assertTrue(page.checkins().size() <= limit);
+                page.checkins().forEach(c -> seen.add(c.id()));
+                cursor = page.next();
+            } while (cursor != null);
+            assertEquals(expected, seen, "limit " + limit);
+        }
+
+        CheckinDTO archived = checkinService.getCheckinHistoryForUser(user.getId(), null, 10).checkins().get(4);
+        assertEquals("archive", archived.username());
+        assertEquals("Archive Bar", archived.venueName());
+    }
+
+    @Test
+    void testHistory_CheckinInBothTiersShowsOnce() {
+        //what a reader racing the archiver would see: rows copied over, not deleted from the hot table yet
+        archivedCheckinRepository.copyFromCheckins(List.of(expected.get(2), archivedId));
+
+        for (int limit : new int[]{1, 2, 3, 10}) {
+            List<Long> seen = new ArrayList<>();
+            String cursor = null;
+            do {
+                CheckinPage page = checkinService.getCheckinHistoryForUser(user.getId(), cursor, limit);
+                page.checkins().forEach(c -> seen.add(c.id()));
+                cursor = page.next();
+            } while (cursor != null);
+            assertEquals(expected, seen, "limit " + limit);
+        }
+
+        List<Long> streamed = new ArrayList<>();
+        checkinService.streamCheckinHistoryForUser(user.getId(), c -> streamed.add(c.id()));
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    void testStreamHistory_MergesBothTiers() {
+        archiver.archive();
+
+        List<Long> streamed = new ArrayList<>();
+        checkinService.streamCheckinHistoryForUser(user.getId(), c -> streamed.add(c.id()));
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    void testDelete_ArchivedCheckin() {
+        archiver.archive();
+
+        checkinService.deleteCheckin(archivedId);
+        assertFalse(archivedCheckinRepository.existsById(archivedId));
+        assertEquals("Checkin not found",
+                assertThrows(RuntimeException.class, () -> checkinService.deleteCheckin(archivedId)).getMessage());
+        assertNull(checkinService.getCheckinHistoryForUser(user.getId(), null, 10).next());
+    }
+}
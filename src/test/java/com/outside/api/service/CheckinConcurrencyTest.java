@@ -0,0 +1,160 @@
+package com.outside.api.service;
+
+import com.outside.api.model.User;
+import com.outside.api.model.Venue;
+import com.outside.api.repository.CheckinEventRepository;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import com.outside.api.repository.VenueRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress test for concurrent check-ins of the same users
+ *
+ * Many threads tap "check in" for the same users at once and the test checks
+ * that no user ever ends up with more than one active checkin. Not
+ * @Transactional: every check-in has to commit for the race to be real, so the
+ * test cleans up after itself.
+ */
+@SpringBootTest
+class CheckinConcurrencyTest {
+
+    private static final int USERS = 50;
+    private static final int TAPS_PER_USER = 8;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private CheckinService checkinService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private CheckinEventRepository eventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Venue> venues = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        checkinRepository.deleteAll();
+        for (int i = 0; i < TAPS_PER_USER; i++) {
+            Venue venue = new Venue();
+            venue.setName("Stress Bar " + i);
+            venue.setLatitude(41.87);
+            venue.setLongitude(-87.62);
+            venues.add(venueRepository.save(venue));
+        }
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("stress" + i + "@example.com");
+            user.setUsername("stress" + i);
+            user.setPasswordHash("not-a-real-hash");
+            users.add(userRepository.save(user));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventRepository.deleteAll();
+        checkinRepository.deleteAll();
+        userRepository.deleteAll(users);
+        venueRepository.deleteAll(venues);
+    }
+
+    private interface Tap {
+        void run(User user, int tap);
+    }
+
+    //runs every tap of every user at once and returns how many succeeded
+    private int hammer(String name, Tap tap) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(USERS * TAPS_PER_USER);
+        AtomicInteger ok = new AtomicInteger();
+        try {
+            //a user's taps are queued next to each other so they really run at the same time
+            for (User user : users) {
+                for (int t = 0; t < TAPS_PER_USER; t++) {
+                    int tapNumber = t;
+                    executor.execute(() -> {
+                        try {
+                            start.await();
+                            tap.run(user, tapNumber);
+                            ok.incrementAndGet();
+                        } catch (RuntimeException | InterruptedException e) {
+                            //rejected taps are expected
+                        } finally {
+                            done.countDown();
+                        }
+                    });
+                }
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            assertTrue(done.await(120, TimeUnit.SECONDS), "taps didn't finish in time");
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf("=== CHECKIN STRESS [%s] attempts=%d ok=%d threads=%d throughput=%.1f checkins/s ===%n",
+                    name, USERS * TAPS_PER_USER, ok.get(), THREADS, USERS * TAPS_PER_USER / seconds);
+        } finally {
+            executor.shutdownNow();
+        }
+        return ok.get();
+    }
+
+    private void assertAtMostOneActiveCheckinPerUser() {
+        List<Long> duplicated = jdbcTemplate.queryForList(
+                "SELECT user_id FROM checkins WHERE checkout_time IS NULL GROUP BY user_id HAVING COUNT(*) > 1",
+                Long.class);
+        assertTrue(duplicated.isEmpty(), "users with several active checkins: " + duplicated);
+    }
+
+    @Test
+    void testSameVenueTaps_OnlyOneCheckinPerUser() throws InterruptedException {
+        Venue venue = venues.get(0);
+
+        int ok = hammer("same venue", (user, tap) -> checkinService.checkinUser(user.getId(), venue.getId()));
+
+        assertEquals(USERS, ok);
+        assertEquals(USERS, checkinRepository.count());
+        assertAtMostOneActiveCheckinPerUser();
+    }
+
+    @Test
+    void testVenueHopping_LeavesOneActiveCheckinPerUser() throws InterruptedException {
+        int ok = hammer("venue hopping", (user, tap) ->
+                checkinService.checkinUser(user.getId(), venues.get(tap).getId()));
+
+        //every hop succeeds and closes the previous checkin
+        assertEquals(USERS * TAPS_PER_USER, ok);
+        assertAtMostOneActiveCheckinPerUser();
+        Integer active = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM checkins WHERE checkout_time IS NULL", Integer.class);
+        assertEquals(USERS, active);
+    }
+}
@@ -0,0 +1,66 @@
+package com.outside.api.service;
+
+import com.outside.api.model.CheckinEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for CheckinEventBus (no Spring context)
+ */
+class CheckinEventBusTest {
+
+    private static CheckinEvent event(long checkinId, CheckinEvent.Type type) {
+        CheckinEvent event = CheckinEvent.of(type, checkinId, 1L, 1L, LocalDateTime.now());
+        event.setId(checkinId);
+        return event;
+    }
+
+    @Test
+    void testOffer_StopsAcceptingWhenQueueIsFull() {
+        //not started, so nothing drains the queue
+        CheckinEventBus bus = new CheckinEventBus(2);
+
+        int accepted = bus.offer(List.of(
+                event(1, CheckinEvent.Type.CHECKED_IN),
+                event(2, CheckinEvent.Type.CHECKED_IN),
+                event(3, CheckinEvent.Type.CHECKED_IN)));
+
+        assertEquals(2, accepted);
+        assertEquals(2, bus.getQueueDepth());
+        assertEquals(0, bus.offer(List.of(event(4, CheckinEvent.Type.CHECKED_OUT))));
+    }
+
+    @Test
+    void testDispatch_DeliversInOrderAndSurvivesFailingSubscriber() throws InterruptedException {
+        CheckinEventBus bus = new CheckinEventBus(10);
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        bus.subscribe(e -> {
+            throw new IllegalStateException("boom");
+        });
+        bus.subscribe(e -> {
+            seen.add(e.getCheckinId());
+            done.countDown();
+        });
+
+        bus.offer(List.of(
+                event(1, CheckinEvent.Type.CHECKED_IN),
+                event(2, CheckinEvent.Type.CHECKED_OUT),
+                event(3, CheckinEvent.Type.AUTO_EXPIRED)));
+        bus.start();
+        try {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(1L, 2L, 3L), seen);
+        } finally {
+            bus.stop();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.outside.api.service;
+
+import com.outside.api.model.Checkin;
+import com.outside.api.model.CheckinEvent;
+import com.outside.api.model.User;
+import com.outside.api.model.Venue;
+import com.outside.api.repository.CheckinEventRepository;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import com.outside.api.repository.VenueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration tests for the checkin outbox: CheckinService writes events,
+ * CheckinEventRelay moves them onto CheckinEventBus
+ *
+ * The test calls relay() itself inside the test transaction, the scheduled
+ * relay runs on another connection and can't see these uncommitted rows.
+ */
+@SpringBootTest
+@Transactional
+class CheckinEventRelayTest {
+
+    @Autowired
+    private CheckinService checkinService;
+
+    @Autowired
+    private CheckinEventRelay relay;
+
+    @Autowired
+    private CheckinEventBus eventBus;
+
+    @Autowired
+    private CheckinEventRepository eventRepository;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final BlockingQueue<CheckinEvent> received = new LinkedBlockingQueue<>();
+
+    private User user;
+    private Venue venue;
+
+    @BeforeEach
+    void setUp() {
+        eventBus.subscribe(received::add);
+
+        user = new User();
+        user.setEmail("outbox@example.com");
+        user.setUsername("outbox");
+        user.setPasswordHash("not-a-real-hash");
+        user = userRepository.save(user);
+
+        venue = new Venue();
+        venue.setName("Outbox Bar");
+        venue.setLatitude(41.8781);
+        venue.setLongitude(-87.6298);
+        venue = venueRepository.save(venue);
+    }
+
+    //events the bus delivered for one checkin, waiting up to 5s for `count` of them
+    private List<CheckinEvent> receivedFor(Long checkinId, int count) throws InterruptedException {
+        List<CheckinEvent> events = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (events.size() < count && System.currentTimeMillis() < deadline) {
+            CheckinEvent event = received.poll(100, TimeUnit.MILLISECONDS);
+            if (event != null && event.getCheckinId().equals(checkinId)) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    @Test
+    void testCheckinAndCheckout_AreWrittenToOutboxAndRelayed() throws InterruptedException {
+        Checkin checkin = checkinService.checkinUser(user.getId(), venue.getId());
+        checkinService.checkoutUser(checkin.getId());
+
+        assertTrue(relay.relay() >= 2);
+
+        List<CheckinEvent> events = receivedFor(checkin.getId(), 2);
+        assertEquals(2, events.size());
+        assertEquals(CheckinEvent.Type.CHECKED_IN, events.get(0).getType());
+        assertEquals(CheckinEvent.Type.CHECKED_OUT, events.get(1).getType());
+        assertEquals(user.getId(), events.get(0).getUserId());
+        assertEquals(venue.getId(), events.get(0).getVenueId());
+
+        //relayed events are marked and not picked up again
+        assertTrue(eventRepository.findUnpublished(PageRequest.of(0, 10)).isEmpty());
+        assertEquals(0, relay.relay());
+    }
+
+    @Test
+    void testAutoCheckout_WritesAutoExpiredEvent() throws InterruptedException {
+        Checkin old = new Checkin();
+        old.setUser(user);
+        old.setVenue(venue);
+        old.setCheckinTime(LocalDateTime.now().minusHours(3));
+        old = checkinRepository.save(old);
+
+        assertTrue(checkinService.autoCheckoutExpiredCheckins() >= 1);
+        relay.relay();
+
+        List<CheckinEvent> events = receivedFor(old.getId(), 1);
+        assertEquals(1, events.size());
+        assertEquals(CheckinEvent.Type.AUTO_EXPIRED, events.get(0).getType());
+        assertEquals(user.getId(), events.get(0).getUserId());
+        assertTrue(eventRepository.findUnpublished(PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    void testLease_OtherInstanceCantTakeItUntilItExpires() {
+        LocalDateTime now = LocalDateTime.now();
+        String holder = eventRepository.findLeaseOwner();
+        assertFalse(holder.isBlank());
+
+        assertEquals(0, eventRepository.acquireLease("other-host:1", now, now.plusSeconds(30)));
+        assertEquals(holder, eventRepository.findLeaseOwner());
+
+        //the holder died without releasing it: free once it's past expiry
+        assertEquals(1, eventRepository.acquireLease("other-host:1", now.plusMinutes(5), now.plusMinutes(6)));
+        assertEquals("other-host:1", eventRepository.findLeaseOwner());
+        assertEquals(0, eventRepository.renewLease(holder, now.plusMinutes(7)));
+    }
+
+    @Test
+    void testLease_StandsByWhileAnotherInstanceHoldsItAndTakesOverOnceFree() {
+        String self = eventRepository.findLeaseOwner();
+        assertTrue(relay.isActive());
+
+        //another instance took the lease while this one was paused
+        jdbcTemplate.update("UPDATE checkin_event_relay_lease SET owner = ?, expires_at = ?",
+                "other-host:1", LocalDateTime.now().plusSeconds(30));
+        relay.holdLease();
+        assertFalse(relay.isActive());
+        assertEquals(0, checkinService.autoCheckoutExpiredCheckins());
+
+        //still held: nothing to take
+        relay.holdLease();
+        assertFalse(relay.isActive());
+        assertEquals("other-host:1", eventRepository.findLeaseOwner());
+
+        //the other instance released it
+        jdbcTemplate.update("UPDATE checkin_event_relay_lease SET expires_at = ?", LocalDateTime.now());
+        relay.holdLease();
+        assertTrue(relay.isActive());
+        assertEquals(self, eventRepository.findLeaseOwner());
+    }
+}
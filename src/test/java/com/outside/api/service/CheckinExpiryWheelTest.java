@@ -0,0 +1,89 @@
+package com.outside.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for CheckinExpiryWheel
+ *
+ * Plain JUnit, no Spring context: the wheel is just a data structure so we
+ * drive it with made up timestamps (1 second ticks).
+ */
+class CheckinExpiryWheelTest {
+
+    private static final long TICK = 1000;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void testAdvance_ReturnsOnlyDueCheckins() {
+        CheckinExpiryWheel wheel = new CheckinExpiryWheel(TICK);
+        wheel.advance(START);
+
+        wheel.register(1L, START + 5 * TICK);
+        wheel.register(2L, START + 60 * TICK);
+
+        assertTrue(wheel.advance(START + 4 * TICK).isEmpty());
+        assertEquals(List.of(1L), wheel.advance(START + 5 * TICK));
+        assertEquals(List.of(2L), wheel.advance(START + 61 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testAdvance_DeadlineInsideATick() {
+        CheckinExpiryWheel wheel = new CheckinExpiryWheel(TICK);
+        wheel.advance(START);
+
+        //due part way through a tick, the wheel is advanced during that tick first
+        long deadline = START + 5 * TICK + 600;
+        wheel.register(1L, deadline);
+
+        assertTrue(wheel.advance(START + 5 * TICK + 300).isEmpty());
+        //next tick at the latest, not a lap of the wheel later
+        assertEquals(List.of(1L), wheel.advance(START + 6 * TICK + 300));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testAdvance_SkipsCancelledCheckins() {
+        CheckinExpiryWheel wheel = new CheckinExpiryWheel(TICK);
+        wheel.advance(START);
+
+        wheel.register(1L, START + 2 * TICK);
+        wheel.register(2L, START + 2 * TICK);
+        wheel.cancel(1L);
+
+        assertEquals(List.of(2L), wheel.advance(START + 3 * TICK));
+    }
+
+    @Test
+    void testAdvance_DeadlineMoreThanOneLapAway() {
+        CheckinExpiryWheel wheel = new CheckinExpiryWheel(TICK);
+        wheel.advance(START);
+
+        //2 hours of 1 second ticks is many laps of the wheel
+        long deadline = START + 2 * 60 * 60 * TICK;
+        wheel.register(1L, deadline);
+
+        for (long now = START + TICK; now < deadline; now += TICK) {
+            assertTrue(wheel.advance(now).isEmpty());
+        }
+        assertEquals(List.of(1L), wheel.advance(deadline));
+    }
+
+    @Test
+    void testAdvance_PastDeadlinesAfterLongPause() {
+        CheckinExpiryWheel wheel = new CheckinExpiryWheel(TICK);
+
+        //reloaded at startup with deadlines that already passed
+        wheel.register(1L, START - 10 * 60 * TICK);
+        wheel.register(2L, START - TICK);
+
+        List<Long> due = wheel.advance(START);
+        assertEquals(2, due.size());
+        assertTrue(due.containsAll(List.of(1L, 2L)));
+    }
+}
@@ -0,0 +1,156 @@
+package com.outside.api.service;
+
+import com.outside.api.model.Checkin;
+import com.outside.api.model.CheckinEvent;
+import com.outside.api.model.User;
+import com.outside.api.model.Venue;
+import com.outside.api.repository.CheckinEventRepository;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import com.outside.api.repository.VenueRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration tests for CheckinService jobs that don't go through a controller
+ *
+ * The chunk size is shrunk to 2 so a handful of rows is enough to make the
+ * auto-checkout job loop over several chunks. Not @Transactional: each chunk
+ * has to commit on its own and the occupancy counters only move once the
+ * relay delivers the committed events, so the test cleans up after itself.
+ * It gets a database of its own, the relays of other cached test contexts
+ * would otherwise publish its events to their buses instead of this one.
+ */
+@SpringBootTest(properties = {
+        "outside.checkin.auto-checkout-chunk-size=2",
+        "spring.datasource.url=jdbc:h2:mem:checkin-service-test"
+})
+class CheckinServiceTest {
+
+    @Autowired
+    private CheckinService checkinService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private CheckinEventRepository eventRepository;
+
+    @Autowired
+    private VenueOccupancyTracker occupancyTracker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Venue testVenue;
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        testVenue = new Venue();
+        testVenue.setName("Test Bar");
+        testVenue.setLatitude(41.8781);
+        testVenue.setLongitude(-87.6298);
+        testVenue = venueRepository.save(testVenue);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventRepository.deleteAll();
+        checkinRepository.deleteAll();
+        userRepository.deleteAll(users);
+        venueRepository.delete(testVenue);
+    }
+
+    //checks in through the service (so the relay counts it) and then moves the checkin time back
+    private Checkin createCheckin(String username, LocalDateTime checkinTime) {
+        User user = new User();
+        user.setEmail(username + "@example.com");
+        user.setUsername(username);
+        user.setPasswordHash("not-a-real-hash");
+        users.add(userRepository.save(user));
+
+        Checkin checkin = checkinService.checkinUser(user.getId(), testVenue.getId());
+        jdbcTemplate.update("UPDATE checkins SET checkin_time = ? WHERE id = ?", checkinTime, checkin.getId());
+        return checkin;
+    }
+
+    //occupancy follows the relay, which runs on its own schedule
+    private void awaitOccupancy(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (occupancyTracker.getOccupancy(testVenue.getId()) != expected
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, occupancyTracker.getOccupancy(testVenue.getId()));
+    }
+
+    @Test
+    void testAutoCheckout_ClosesOnlyExpiredCheckinsAcrossChunks() throws InterruptedException {
+        Checkin expired1 = createCheckin("user1", LocalDateTime.now().minusHours(5));
+        Checkin expired2 = createCheckin("user2", LocalDateTime.now().minusHours(4));
+        Checkin expired3 = createCheckin("user3", LocalDateTime.now().minusHours(3));
+        Checkin fresh = createCheckin("user4", LocalDateTime.now().minusMinutes(30));
+        awaitOccupancy(4);
+
+        long batchesBefore = sweepBatchSizes().map(DistributionSummary::count).orElse(0L);
+        int closed = checkinService.autoCheckoutExpiredCheckins();
+
+        assertEquals(3, closed);
+        //chunks of 2 and 1, the final empty lock query isn't a batch
+        assertEquals(batchesBefore + 2, sweepBatchSizes().get().count());
+        assertNotNull(checkinRepository.findById(expired1.getId()).get().getCheckoutTime());
+        assertNotNull(checkinRepository.findById(expired2.getId()).get().getCheckoutTime());
+        assertNotNull(checkinRepository.findById(expired3.getId()).get().getCheckoutTime());
+        assertNull(checkinRepository.findById(fresh.getId()).get().getCheckoutTime());
+
+        //every chunk committed its events, the counters drop by all of them
+        awaitOccupancy(1);
+
+        //nothing left to close on the next run
+        assertEquals(0, checkinService.autoCheckoutExpiredCheckins());
+    }
+
+    @Test
+    void testDeleteCheckin_OpenCheckinLeavesThroughTheOutbox() throws InterruptedException {
+        Checkin open = createCheckin("user1", LocalDateTime.now().minusMinutes(10));
+        awaitOccupancy(1);
+
+        checkinService.deleteCheckin(open.getId());
+
+        assertTrue(checkinRepository.findById(open.getId()).isEmpty());
+        assertTrue(eventRepository.findAll().stream().anyMatch(event ->
+                event.getType() == CheckinEvent.Type.CHECKED_OUT && event.getCheckinId().equals(open.getId())));
+        awaitOccupancy(0);
+    }
+
+    private Optional<DistributionSummary> sweepBatchSizes() {
+        return Optional.ofNullable(meterRegistry.find("outside.checkin.auto_checkout.batch.size")
+                .tag("trigger", "sweep").summary());
+    }
+}
@@ -0,0 +1,100 @@
+package com.outside.api.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests for CheckinSessionRegistry
+ *
+ * The users are fresh and have no checkins, so loading them from the database
+ * gives empty sessions and everything after that is driven by hand.
+ */
+@SpringBootTest
+@Transactional
+class CheckinSessionRegistryTest {
+
+    private static final long MINUTE = 60_000;
+
+    @Autowired
+    private CheckinSessionRegistry registry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> createUsers(int count) {
+        jdbcTemplate.update("INSERT INTO users (email, username, password_hash) " +
+                "SELECT 'session' || x || '@example.com', 'session' || x, 'hash' FROM SYSTEM_RANGE(1, ?)", count);
+        return jdbcTemplate.queryForList("SELECT id FROM users WHERE username LIKE 'session%' ORDER BY id", Long.class);
+    }
+
+    @Test
+    void testLookup_UnknownUserHasNoSession() {
+        assertNull(registry.lookup(999_999_999L, 1));
+    }
+
+    @Test
+    void testLookup_TracksOpenCheckinAndCooldownPerVenue() {
+        long userId = createUsers(1).get(0);
+        long now = System.currentTimeMillis();
+
+        assertEquals(new CheckinSessionRegistry.Lookup(0, 0, 0), registry.lookup(userId, 1));
+
+        registry.checkedIn(userId, 10, 1);
+        assertEquals(new CheckinSessionRegistry.Lookup(10, 1, 0), registry.lookup(userId, 1));
+
+        registry.checkedOut(userId, 10, 1, now - 5 * MINUTE);
+        registry.checkedOut(userId, 7, 2, now - 30 * MINUTE); //outside the cooldown, dropped
+        assertEquals(new CheckinSessionRegistry.Lookup(0, 0, now - 5 * MINUTE), registry.lookup(userId, 1));
+        assertEquals(new CheckinSessionRegistry.Lookup(0, 0, 0), registry.lookup(userId, 2));
+
+        //a deleted checkin no longer blocks the venue
+        registry.removed(userId, 10);
+        assertEquals(new CheckinSessionRegistry.Lookup(0, 0, 0), registry.lookup(userId, 1));
+    }
+
+    @Test
+    void testReload_KeepsSessionsWithPendingCheckins() {
+        List<Long> userIds = createUsers(2);
+        long pendingUser = userIds.get(0);
+        long staleUser = userIds.get(1);
+        registry.load(userIds);
+        registry.checkedIn(pendingUser, CheckinSessionRegistry.PENDING, 1);
+        registry.checkedIn(staleUser, 10, 1); //no such row
+
+        registry.reload(userIds);
+        assertEquals(new CheckinSessionRegistry.Lookup(CheckinSessionRegistry.PENDING, 1, 0),
+                registry.lookup(pendingUser, 1));
+        assertEquals(new CheckinSessionRegistry.Lookup(0, 0, 0), registry.lookup(staleUser, 1));
+    }
+
+    @Test
+    void testEvict_LeavesOtherUsersIntact() {
+        List<Long> userIds = createUsers(5000);
+        registry.load(userIds);
+        for (long userId : userIds) {
+            registry.checkedIn(userId, userId, 1);
+        }
+        int size = registry.size();
+
+        for (int i = 0; i < userIds.size(); i += 3) {
+            registry.evict(userIds.get(i));
+        }
+        assertEquals(size - 1667, registry.size());
+
+        //evicted users come back from the database (empty), everyone else keeps their checkin
+        registry.load(userIds);
+        for (int i = 0; i < userIds.size(); i++) {
+            long userId = userIds.get(i);
+            long expected = i % 3 == 0 ? 0 : userId;
+            assertEquals(expected, registry.lookup(userId, 1).activeCheckinId(), "user " + userId);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.outside.api.service;
+
+import com.outside.api.dto.CheckinBatchItem;
+import com.outside.api.dto.CheckinBatchResult;
+import com.outside.api.dto.CheckinDTO;
+import com.outside.api.model.Checkin;
+import com.outside.api.model.User;
+import com.outside.api.model.Venue;
+import com.outside.api.repository.CheckinEventRepository;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import com.outside.api.repository.VenueRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for write-behind check-in ingestion (ack-after-flush durability)
+ *
+ * The flush interval is stretched to 200ms so check-ins submitted together
+ * reliably land in the same batch. Not @Transactional, the writer commits on
+ * its own thread, so the test cleans up after itself.
+ */
+@SpringBootTest(properties = {
+        "outside.checkin.ingest.mode=write-behind",
+        "outside.checkin.ingest.flush-interval-ms=200"
+})
+class CheckinWriteBehindTest {
+
+    private static final int USERS = 20;
+    private static final int HOPS_PER_USER = 4;
+
+    @Autowired
+    private CheckinWriteBehind writeBehind;
+
+    @Autowired
+    private CheckinService checkinService;
+
+    @Autowired
+    private CheckinSessionRegistry sessionRegistry;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private CheckinEventRepository eventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Venue> venues = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        checkinRepository.deleteAll();
+        for (int i = 0; i < HOPS_PER_USER; i++) {
+            Venue venue = new Venue();
+            venue.setName("Buffered Bar " + i);
+            venue.setLatitude(41.87);
+            venue.setLongitude(-87.62);
+            venues.add(venueRepository.save(venue));
+        }
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("buffered" + i + "@example.com");
+            user.setUsername("buffered" + i);
+            user.setPasswordHash("not-a-real-hash");
+            users.add(userRepository.save(user));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventRepository.deleteAll();
+        checkinRepository.deleteAll();
+        userRepository.deleteAll(users);
+        venueRepository.deleteAll(venues);
+    }
+
+    @Test
+    void testSubmit_AnswersWithTheSavedCheckinAndKeepsTheRules() {
+        Long userId = users.get(0).getId();
+
+        CheckinDTO first = writeBehind.submit(userId, venues.get(0).getId());
+        assertNotNull(first.id());
+        assertEquals("buffered0", first.username());
+        assertTrue(checkinRepository.findById(first.id()).isPresent());
+
+        RuntimeException again = assertThrows(RuntimeException.class,
+                () -> writeBehind.submit(userId, venues.get(0).getId()));
+        assertEquals("User is already checked in to this venue", again.getMessage());
+        assertEquals("User not found",
+                assertThrows(RuntimeException.class, () -> writeBehind.submit(999_999_999L, venues.get(0).getId()))
+                        .getMessage());
+
+        //moving on closes the first checkin
+        writeBehind.submit(userId, venues.get(1).getId());
+        Checkin closed = checkinRepository.findById(first.id()).get();
+        assertNotNull(closed.getCheckoutTime());
+    }
+
+    @Test
+    void testBatchCheckin_RefusedWhileACheckinIsBuffered() {
+        Long userId = users.get(0).getId();
+        Long otherUserId = users.get(1).getId();
+
+        //the user's check-in at the first venue is accepted but still in the buffer
+        sessionRegistry.lookup(userId, venues.get(0).getId());
+        sessionRegistry.checkedIn(userId, CheckinSessionRegistry.PENDING, venues.get(0).getId());
+        try {
+            List<CheckinBatchResult> results = checkinService.checkinUsers(List.of(
+                    new CheckinBatchItem(userId, venues.get(1).getId()),
+                    new CheckinBatchItem(otherUserId, venues.get(1).getId())));
+
+            assertEquals("Previous check-in is still being saved, try again", results.get(0).error());
+            assertTrue(results.get(1).succeeded());
+            assertEquals(0, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM checkins WHERE user_id = ?", Integer.class, userId));
+        } finally {
+            sessionRegistry.evict(userId);
+        }
+    }
+
+    @Test
+    void testVenueHopping_SharesCommitsAndLeavesOneActiveCheckin() throws InterruptedException {
+        DistributionSummary batches = meterRegistry.summary("outside.checkin.ingest.flush.size");
+        long batchesBefore = batches.count();
+        double writtenBefore = batches.totalAmount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger ok = new AtomicInteger();
+        try {
+            //every user hops through all venues, one hop after the other
+            for (User user : users) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        for (Venue venue : venues) {
+                            writeBehind.submit(user.getId(), venue.getId());
+                            ok.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS), "hops didn't finish in time");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(USERS * HOPS_PER_USER, ok.get());
+        assertEquals(USERS * HOPS_PER_USER, (int) (batches.totalAmount() - writtenBefore));
+        assertTrue(batches.count() - batchesBefore < USERS * HOPS_PER_USER, "every check-in got its own commit");
+
+        Integer active = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM checkins WHERE checkout_time IS NULL", Integer.class);
+        assertEquals(USERS, active);
+        Integer lastVenue = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM checkins WHERE checkout_time IS NULL AND venue_id = ?", Integer.class,
+                venues.get(HOPS_PER_USER - 1).getId());
+        assertEquals(USERS, lastVenue);
+    }
+}
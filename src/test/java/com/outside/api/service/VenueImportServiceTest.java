@@ -0,0 +1,140 @@
+package com.outside.api.service;
+
+import com.outside.api.dto.VenueImportReport;
+import com.outside.api.model.Venue;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import com.outside.api.repository.VenueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for VenueImportService
+ *
+ * Batch size is 2 so a handful of rows already goes through several batches.
+ */
+@SpringBootTest(properties = "outside.import.batch-size=2")
+@Transactional
+class VenueImportServiceTest {
+
+    @Autowired
+    private VenueImportService venueImportService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        checkinRepository.deleteAll();
+        userRepository.deleteAll();
+        venueRepository.deleteAll();
+
+        Venue existing = new Venue();
+        existing.setName("Old Tavern");
+        existing.setLatitude(41.9);
+        existing.setLongitude(-87.65);
+        venueRepository.save(existing);
+    }
+
+    private VenueImportReport importText(String text, VenueImportService.Format format,
+                                         List<VenueImportReport> progress) {
+        return venueImportService.importVenues(new StringReader(text), format, progress::add);
+    }
+
+    @Test
+    void testImportCsv_ValidatesDedupesAndBatches() {
+        String csv = """
+                name,latitude,longitude,category,age_restriction,description
+                Blue Lantern,41.88,-87.63,bar,21,"Cozy, dark
+                and \"\"quiet\"\"\"
+                Neon Owl,41.89,-87.62,club,,
+                neon owl,41.89,-87.62,club,,
+                Old Tavern,41.9,-87.65,bar,,
+                ,41.8,-87.6,bar,,
+                Far Away,95,-87.6,bar,,
+                Short Row,41.8
+                Rooftop,41.87,-87.64,bar,18,
+                """;
+        List<VenueImportReport> progress = new ArrayList<>();
+
+        VenueImportReport report = importText(csv, VenueImportService.Format.CSV, progress);
+
+        assertEquals(8, report.rows());
+        assertEquals(3, report.imported());
+        //one repeat within the file (name ignores case), one already in the database
+        assertEquals(2, report.duplicates());
+        assertEquals(3, report.failed());
+        assertEquals(List.of(7L, 8L, 9L), report.errors().stream().map(VenueImportReport.RowError::line).toList());
+        assertEquals("name is required", report.errors().get(0).message());
+        assertEquals("latitude must be between -90 and 90", report.errors().get(1).message());
+        assertEquals("Expected 6 columns, found 2", report.errors().get(2).message());
+        //3 rows in batches of 2
+        assertEquals(2, progress.size());
+        assertEquals(3, progress.get(1).imported());
+
+        List<Venue> venues = venueRepository.findAll();
+        venues.sort(Comparator.comparing(Venue::getName));
+        assertEquals(4, venues.size());
+        Venue lantern = venues.get(0);
+        assertEquals("Blue Lantern", lantern.getName());
+        assertEquals(21, lantern.getAgeRestriction());
+        assertEquals("Cozy, dark\nand \"quiet\"", lantern.getDescription());
+
+        //visible to the in-memory indexes right away
+        assertEquals("Blue Lantern", venueService.searchVenues("blue lantern", 5).get(0).getName());
+        assertTrue(venueService.getVenuesNearby(41.89, -87.62, 0.1).stream()
+                .anyMatch(v -> v.getName().equals("Neon Owl")));
+    }
+
+    @Test
+    void testImportNdjson_ReportsBadLines() {
+        String ndjson = """
+                {"name": "Velvet Room", "latitude": 41.91, "longitude": -87.68, "phoneNumber": "555-0100"}
+
+                {"name": "Broken", "latitude": 41.9
+                {"name": "Mystery", "latitude": 41.9, "longitude": -87.6, "rating": 5}
+                ["not", "an", "object"]
+                {"name": "Midnight Crown", "latitude": "41.92", "longitude": "-87.69"}
+                """;
+
+        VenueImportReport report = importText(ndjson, VenueImportService.Format.NDJSON, new ArrayList<>());
+
+        assertEquals(5, report.rows());
+        assertEquals(2, report.imported());
+        assertEquals(3, report.failed());
+        assertEquals(List.of(3L, 4L, 5L), report.errors().stream().map(VenueImportReport.RowError::line).toList());
+        assertTrue(report.errors().get(0).message().startsWith("Invalid JSON"));
+        assertEquals("Unknown field: rating", report.errors().get(1).message());
+        assertEquals("Expected a JSON object", report.errors().get(2).message());
+        assertEquals(3, venueRepository.count());
+    }
+
+    @Test
+    void testImportCsv_UnknownColumnRejectsWholeFile() {
+        assertThrows(IllegalArgumentException.class, () ->
+                importText("name,latitude,longitude,rating\nBar,41.8,-87.6,5\n",
+                        VenueImportService.Format.CSV, new ArrayList<>()));
+        assertEquals(1, venueRepository.count());
+    }
+}
@@ -0,0 +1,66 @@
+package com.outside.api.service;
+
+import com.outside.api.model.Venue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for VenueSearchIndex (plain JUnit, no Spring context)
+ */
+class VenueSearchIndexTest {
+
+    private VenueSearchIndex index;
+
+    private static Venue venue(long id, String name) {
+        Venue venue = new Venue();
+        venue.setId(id);
+        venue.setName(name);
+        return venue;
+    }
+
+    private static List<String> names(List<Venue> venues) {
+        return venues.stream().map(Venue::getName).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new VenueSearchIndex();
+        index.reload(List.of(
+                venue(1, "Chicago Dive Bar"),
+                venue(2, "The Violet Hour"),
+                venue(3, "Barcocina"),
+                venue(4, "Lucky Strike")));
+    }
+
+    @Test
+    void testSearch_PrefixRanksFirst() {
+        List<String> result = names(index.search("bar", 10));
+        assertEquals("Barcocina", result.get(0));
+        assertTrue(result.contains("Chicago Dive Bar"));
+    }
+
+    @Test
+    void testSearch_ToleratesTypos() {
+        assertEquals(List.of("The Violet Hour"), names(index.search("violett hour", 10)));
+        assertEquals("Chicago Dive Bar", names(index.search("chicgo", 10)).get(0));
+    }
+
+    @Test
+    void testSearch_RespectsLimit() {
+        assertEquals(1, index.search("bar", 1).size());
+    }
+
+    @Test
+    void testPutAndRemove_KeepIndexInSync() {
+        index.put(venue(4, "Lucky Star"));
+        assertEquals(List.of("Lucky Star"), names(index.search("lucky", 10)));
+
+        index.remove(4L);
+        assertTrue(index.search("lucky", 10).isEmpty());
+    }
+}
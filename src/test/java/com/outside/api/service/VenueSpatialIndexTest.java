@@ -0,0 +1,65 @@
+package com.outside.api.service;
+
+import com.outside.api.model.Venue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for VenueSpatialIndex (plain JUnit, no Spring context)
+ */
+class VenueSpatialIndexTest {
+
+    private VenueSpatialIndex index;
+
+    private static Venue venue(long id, String name, double lat, double lon) {
+        Venue venue = new Venue();
+        venue.setId(id);
+        venue.setName(name);
+        venue.setLatitude(lat);
+        venue.setLongitude(lon);
+        return venue;
+    }
+
+    private List<String> namesWithin(double lat, double lon, double radiusMi) {
+        return index.findWithinRadius(lat, lon, radiusMi).stream().map(match -> match.venue().getName()).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new VenueSpatialIndex();
+        index.reload(List.of(
+                venue(1, "Loop", 41.8781, -87.6298),
+                venue(2, "Wicker Park", 41.9088, -87.6796),
+                venue(3, "Milwaukee", 43.0389, -87.9065),
+                venue(4, "Fiji West", -17.7134, 179.99),
+                venue(5, "Fiji East", -17.7134, -179.99),
+                venue(6, "Longyearbyen", 78.2232, 15.6267)));
+    }
+
+    @Test
+    void testFindWithinRadius_ClosestFirst() {
+        assertEquals(List.of("Loop", "Wicker Park"), namesWithin(41.8781, -87.6298, 5));
+    }
+
+    @Test
+    void testFindWithinRadius_WideRadiusWalksPopulatedCells() {
+        //a 100 mile box is thousands of cells, far more than the six populated ones
+        assertEquals(List.of("Loop", "Wicker Park", "Milwaukee"), namesWithin(41.8781, -87.6298, 100));
+    }
+
+    @Test
+    void testFindWithinRadius_WrapsAroundTheAntimeridian() {
+        assertEquals(List.of("Fiji West", "Fiji East"), namesWithin(-17.7134, 179.995, 5));
+        assertEquals(List.of("Fiji East", "Fiji West"), namesWithin(-17.7134, -179.995, 100));
+    }
+
+    @Test
+    void testFindWithinRadius_NearAPole() {
+        //the box spans every longitude up there
+        assertEquals(List.of("Longyearbyen"), namesWithin(89.99, 0, 900));
+    }
+}
@@ -0,0 +1,169 @@
+package com.outside.api.service;
+
+import com.outside.api.dto.VenueStats;
+import com.outside.api.model.Checkin;
+import com.outside.api.model.CheckinEvent;
+import com.outside.api.model.User;
+import com.outside.api.model.Venue;
+import com.outside.api.repository.CheckinRepository;
+import com.outside.api.repository.UserRepository;
+import com.outside.api.repository.VenueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Integration tests for VenueStatsRollup
+ *
+ * Like CheckinEventRelayTest the test relays and flushes itself inside the test
+ * transaction, the scheduled runs can't see these uncommitted rows.
+ */
+@SpringBootTest
+@Transactional
+class VenueStatsRollupTest {
+
+    private static final LocalDateTime EVENING = LocalDateTime.of(2026, 3, 14, 20, 0);
+
+    @Autowired
+    private VenueStatsRollup rollup;
+
+    @Autowired
+    private CheckinService checkinService;
+
+    @Autowired
+    private CheckinEventRelay relay;
+
+    @Autowired
+    private CheckinEventBus eventBus;
+
+    @Autowired
+    private CheckinRepository checkinRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    private final BlockingQueue<CheckinEvent> received = new LinkedBlockingQueue<>();
+    private final List<User> users = new ArrayList<>();
+    private Venue venue;
+
+    @BeforeEach
+    void setUp() {
+        //subscribed after the rollup, so an event seen here has been rolled up already
+        eventBus.subscribe(received::add);
+
+        venue = new Venue();
+        venue.setName("Rollup Bar");
+        venue.setLatitude(41.8781);
+        venue.setLongitude(-87.6298);
+        venue = venueRepository.save(venue);
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setEmail("rollup" + i + "@example.com");
+            user.setUsername("rollup" + i);
+            user.setPasswordHash("not-a-real-hash");
+            users.add(userRepository.save(user));
+        }
+    }
+
+    private void visit(User user, LocalDateTime checkinTime, LocalDateTime checkoutTime) {
+        Checkin checkin = new Checkin();
+        checkin.setUser(user);
+        checkin.setVenue(venue);
+        checkin.setCheckinTime(checkinTime);
+        checkin.setCheckoutTime(checkoutTime);
+        checkinRepository.save(checkin);
+    }
+
+    private List<VenueStats.Bucket> stats(LocalDateTime from, LocalDateTime to, VenueStatsRollup.Granularity granularity) {
+        return rollup.getStats(venue.getId(), from, to, granularity);
+    }
+
+    @Test
+    void testBackfill_RollsUpArrivalsDeparturesPeakAndDwell() {
+        visit(users.get(0), EVENING.plusMinutes(10), EVENING.plusMinutes(100));
+        visit(users.get(1), EVENING.plusMinutes(30), EVENING.plusMinutes(50));
+        visit(users.get(2), EVENING.plusMinutes(45), EVENING.plusMinutes(135));
+        //there since the afternoon: not an arrival of the window, but its departure and dwell are
+        visit(users.get(2), EVENING.minusHours(3), EVENING.plusMinutes(5));
+
+        rollup.backfill(EVENING, EVENING.plusHours(3));
+        //hours are replaced, running it again doesn't double anything
+        rollup.backfill(EVENING, EVENING.plusHours(3));
+
+        List<VenueStats.Bucket> hours = stats(EVENING.minusHours(1), EVENING.plusHours(4), VenueStatsRollup.Granularity.HOUR);
+        assertEquals(3, hours.size());
+        assertEquals(new VenueStats.Bucket(EVENING, 3, 2, 3, 102.5), hours.get(0));
+        assertEquals(new VenueStats.Bucket(EVENING.plusHours(1), 0, 1, 2, 90.0), hours.get(1));
+        assertEquals(new VenueStats.Bucket(EVENING.plusHours(2), 0, 1, 1, 90.0), hours.get(2));
+
+        List<VenueStats.Bucket> days = stats(EVENING.minusDays(1), EVENING.plusDays(1), VenueStatsRollup.Granularity.DAY);
+        assertEquals(List.of(new VenueStats.Bucket(EVENING.toLocalDate().atStartOfDay(), 3, 4, 3, 96.3)), days);
+    }
+
+    @Test
+    void testEvents_AddUpToWhatTheBackfillComputes() throws InterruptedException {
+        Checkin first = checkinService.checkinUser(users.get(0).getId(), venue.getId());
+        checkinService.checkinUser(users.get(1).getId(), venue.getId());
+        checkinService.checkoutUser(first.getId());
+        relay.relay();
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(received.poll(5, TimeUnit.SECONDS), "event not delivered");
+        }
+        rollup.flush();
+
+        LocalDateTime now = LocalDateTime.now();
+        VenueStats.Bucket live = total(stats(now.minusHours(2), now.plusHours(1), VenueStatsRollup.Granularity.HOUR));
+        assertEquals(2, live.arrivals());
+        assertEquals(1, live.departures());
+        assertEquals(2, live.peakOccupancy());
+
+        rollup.backfill(now.minusHours(2), now);
+        assertEquals(live, total(stats(now.minusHours(2), now.plusHours(1), VenueStatsRollup.Granularity.HOUR)));
+    }
+
+    @Test
+    void testBackfill_LeavesTheCurrentHourToLiveDeltas() {
+        LocalDateTime now = LocalDateTime.now();
+        //written behind the rollup's back, a backfill of the current hour would count it
+        visit(users.get(0), now, null);
+
+        rollup.backfill(now.minusHours(2), now.plusHours(1));
+
+        assertEquals(List.of(), stats(now.truncatedTo(ChronoUnit.HOURS), now.plusHours(1),
+                VenueStatsRollup.Granularity.HOUR));
+    }
+
+    @Test
+    void testStats_NothingRolledUp() {
+        assertEquals(List.of(), stats(EVENING, EVENING.plusDays(1), VenueStatsRollup.Granularity.HOUR));
+    }
+
+    //sum of the buckets, in case the test straddles an hour
+    private static VenueStats.Bucket total(List<VenueStats.Bucket> buckets) {
+        long arrivals = 0;
+        long departures = 0;
+        long peak = 0;
+        for (VenueStats.Bucket bucket : buckets) {
+            arrivals += bucket.arrivals();
+            departures += bucket.departures();
+            peak = Math.max(peak, bucket.peakOccupancy());
+        }
+        return new VenueStats.Bucket(null, arrivals, departures, peak, null);
+    }
+}
@@ -0,0 +1,92 @@
+package com.outside.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for VenueTrendingTracker (no Spring context, night is 17:00-05:00)
+ */
+class VenueTrendingTrackerTest {
+
+    private final VenueTrendingTracker tracker = new VenueTrendingTracker(17, 5);
+
+    private static final LocalDateTime EVENING = LocalDateTime.of(2026, 10, 16, 21, 30);
+
+    private void record(long venueId, LocalDateTime time, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.record(venueId, time);
+        }
+    }
+
+    @Test
+    void testCounts_PerWindow() {
+        record(1, EVENING.minusMinutes(5), 3);
+        record(1, EVENING.minusMinutes(30), 2);
+        record(1, EVENING.minusHours(2), 1);
+
+        VenueTrendingTracker.Counts counts = tracker.getCounts(1L, EVENING);
+        assertEquals(3, counts.last15Minutes());
+        assertEquals(5, counts.lastHour());
+        assertEquals(6, counts.tonight());
+    }
+
+    @Test
+    void testCounts_OldMinutesFallOutOfTheRing() {
+        record(1, EVENING.minusMinutes(70), 4);
+        //same ring slot as 70 minutes ago, one lap later
+        record(1, EVENING.minusMinutes(10), 1);
+
+        VenueTrendingTracker.Counts counts = tracker.getCounts(1L, EVENING);
+        assertEquals(1, counts.last15Minutes());
+        assertEquals(1, counts.lastHour());
+        assertEquals(5, counts.tonight());
+    }
+
+    @Test
+    void testCounts_TonightResetsDuringTheDay() {
+        LocalDateTime lateNight = LocalDateTime.of(2026, 10, 17, 2, 0);
+        record(1, lateNight, 2);
+
+        //02:00 still belongs to the night that started at 17:00 the day before
+        assertEquals(2, tracker.getCounts(1L, lateNight.plusMinutes(1)).tonight());
+        assertEquals(0, tracker.getCounts(1L, LocalDateTime.of(2026, 10, 17, 14, 0)).tonight());
+    }
+
+    @Test
+    void testPrune_ForgetsVenuesWithNothingLeftToCount() {
+        LocalDateTime afternoon = LocalDateTime.of(2026, 10, 17, 13, 0);
+        record(1, afternoon.minusMinutes(90), 2);
+        record(2, afternoon.minusMinutes(20), 1);
+
+        //venue 1 is out of the hour and it's daytime, venue 2 is still in the hour
+        assertEquals(1, tracker.prune(afternoon));
+        assertEquals(List.of(2L), List.copyOf(tracker.getActiveVenueIds()));
+
+        //venues still counted tonight stay even with a quiet last hour
+        LocalDateTime tonight = afternoon.withHour(20);
+        record(3, afternoon.withHour(18), 1);
+        assertEquals(1, tracker.prune(tonight));
+        assertEquals(List.of(3L), List.copyOf(tracker.getActiveVenueIds()));
+        assertEquals(1, tracker.getCounts(3L, tonight).tonight());
+    }
+
+    @Test
+    void testTop_BusiestFirstAndSkipsQuietVenues() {
+        record(1, EVENING.minusMinutes(5), 3);
+        record(2, EVENING.minusMinutes(5), 5);
+        record(3, EVENING.minusMinutes(40), 4);
+        record(4, EVENING.minusMinutes(1), 1);
+
+        List<VenueTrendingTracker.Counts> top = tracker.top(List.of(1L, 2L, 3L, 4L),
+                VenueTrendingTracker.Window.LAST_15_MINUTES, 2, EVENING);
+        assertEquals(List.of(2L, 1L), top.stream().map(VenueTrendingTracker.Counts::venueId).toList());
+
+        List<VenueTrendingTracker.Counts> byHour = tracker.top(List.of(1L, 3L),
+                VenueTrendingTracker.Window.LAST_HOUR, 5, EVENING);
+        assertEquals(List.of(3L, 1L), byHour.stream().map(VenueTrendingTracker.Counts::venueId).toList());
+    }
+}